@@ -24,6 +24,82 @@ public class Constants
 	//Location of image file for level 01
 	public static final String LEVEL_01 = "assets-raw/levels/level-01.png";
 	
+	//Levels of the campaign in the order they are played
+	public static final String[] LEVELS = { LEVEL_01 };
+	
+	//Memory budget of the parsed levels kept in the level cache
+	public static final long LEVEL_CACHE_MAX_BYTES = 16 * 1024 * 1024;
+	
+	//Distance from the origin at which the world is moved back to it
+	public static final float ORIGIN_SHIFT_DISTANCE = 1024.0f;
+	
+	//Width of a level chunk in columns
+	public static final int LEVEL_CHUNK_WIDTH = 32;
+	
+	//Chunks kept loaded behind and ahead of the visible area
+	public static final int LEVEL_CHUNKS_BEHIND = 1;
+	public static final int LEVEL_CHUNKS_AHEAD = 2;
+	
+	//Size of the cells of the collision grid in meters
+	public static final float COLLISION_GRID_CELL_SIZE = 2.0f;
+	
+	//Resolve the bunny head's collisions in the Box2D world instead
+	//of testing its bounds against the collision grids
+	public static final boolean BOX2D_PLAYER = false;
+	
+	//Ticks of the game world simulation per second
+	public static final int SIMULATION_TICK_RATE = 60;
+	
+	//Most ticks run in one frame to catch up after a long frame,
+	//the time beyond them is dropped
+	public static final int SIMULATION_MAX_STEPS = 5;
+	
+	//Simulate the next frame on a worker thread while the last one is
+	//drawn, on machines with more than one core
+	public static final boolean PIPELINED_FRAMES = true;
+	
+	//Seconds between two keyframes of a recording
+	public static final float REPLAY_KEYFRAME_INTERVAL = 5.0f;
+	
+	//Seconds a replay jumps back or ahead at a time
+	public static final float REPLAY_SEEK_STEP = 5.0f;
+	
+	//File the last recording is saved to and played back from
+	public static final String REPLAY_FILE = "replays/last.rpl";
+	
+	//Bounds of the fraction of the screen's resolution the game world
+	//is drawn at when the resolution follows the frame time
+	public static final float RESOLUTION_SCALE_MIN = 0.5f;
+	public static final float RESOLUTION_SCALE_MAX = 1.0f;
+	
+	//Frame time in seconds the resolution of the game world and the
+	//quality preset are lowered to keep
+	public static final float TARGET_FRAME_TIME = 1.0f / 60.0f;
+	
+	//Frames whose frame times the quality preset is tuned by at a time
+	public static final int QUALITY_WINDOW_FRAMES = 120;
+	
+	//Fraction of the frames of a window that must keep the target frame time
+	public static final float QUALITY_PERCENTILE = 0.9f;
+	
+	//Margin around the visible area in which objects are still drawn
+	public static final float RENDER_CULL_MARGIN = 1.0f;
+	
+	//Margin around the visible area in which objects are updated
+	public static final float ACTIVE_AREA_MARGIN = 4.0f;
+	
+	//Seed of the endless mode, the same seed always builds the same world
+	public static final long ENDLESS_SEED = 493;
+	
+	//Chunks of the endless mode between two goals
+	public static final int ENDLESS_GOAL_INTERVAL = 8;
+	
+	//Points for reaching a goal in the endless mode
+	public static final int ENDLESS_GOAL_SCORE = 1000;
+	
+	//Generated chunks whose collected items are remembered
+	public static final int ENDLESS_CHUNKS_REMEMBERED = 64;
+	
 	//Amount of extra lives at level start
 	public static final int LIVES_START = 3;
 	
@@ -50,6 +126,18 @@ public class Constants
 	//Spawn radius for carrots
 	public static final float CARROTS_SPAWN_RADIUS = 3.5f;
 	
+	//Speed relative to the rock below under which a carrot rests
+	public static final float CARROT_SETTLE_SPEED = 0.1f;
+	
+	//Time a carrot must rest before it settles on its rock
+	public static final float CARROT_SETTLE_TIME = 0.5f;
+	
+	//Depth below a carrot in which the rock that holds it is looked for
+	public static final float CARROT_SUPPORT_DEPTH = 1.0f;
+	
+	//Height below which objects have fallen into the water
+	public static final float WATER_LEVEL = -5.0f;
+	
 	//Delay after game finished
 	public static final float TIME_DELAY_GAME_FINISHED = 6;
 }
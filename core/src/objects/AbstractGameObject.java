@@ -5,7 +5,6 @@ package objects;
  * @author Jason LoBianco
  */
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
@@ -29,6 +28,11 @@ public abstract class AbstractGameObject
 	public float stateTime;
 	public Animation animation;
 	
+	//state at the previous tick of the simulation, so the object can
+	//be drawn in between two ticks
+	public Vector2 lastPosition;
+	public float lastRotation;
+	
 	/**
 	 * Creates an AbstractGameObject with starting values.
 	 */
@@ -44,6 +48,33 @@ public abstract class AbstractGameObject
 		friction = new Vector2();
 		acceleration = new Vector2();
 		bounds = new Rectangle();
+		lastPosition = new Vector2();
+	}
+	
+	/**
+	 * remembers the state of the object before a tick of the simulation
+	 */
+	public void saveState()
+	{
+		lastPosition.set(position);
+		lastRotation = rotation;
+	}
+	
+	/**
+	 * moves the object along with the origin of the world, which is
+	 * moved dx to the right. Its state at the previous tick and its
+	 * body move with it.
+	 * @param dx
+	 */
+	public void shiftOrigin(float dx)
+	{
+		position.x -= dx;
+		lastPosition.x -= dx;
+		if(body != null)
+		{
+			Vector2 bodyPosition = body.getPosition();
+			body.setTransform(bodyPosition.x - dx, bodyPosition.y, body.getAngle());
+		}
 	}
 	
 	/**
@@ -70,10 +101,11 @@ public abstract class AbstractGameObject
 	}
 	
 	/**
-	 * needs to be overridden to draw game objects
-	 * @param batch
+	 * needs to be overridden to add the images of game objects to the
+	 * state that is drawn
+	 * @param state
 	 */
-	public abstract void render(SpriteBatch batch);
+	public abstract void render(RenderState state);
 	
 	/**
 	 * updates the motion in the x direction.
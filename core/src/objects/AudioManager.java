@@ -4,6 +4,8 @@ import screens.GamePreferences;
 
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
 
 /**
  * The AudioManager class handles all of the music an sounds for the game.
@@ -13,6 +15,13 @@ public class AudioManager
 {  
 	public static final AudioManager instance = new AudioManager();
 	private Music playingMusic;
+	//no sounds are played while muted
+	private boolean muted;
+	//sounds of the simulation, which may run on another thread, that
+	//are played on the render thread by playQueued()
+	private final Array<Sound> queuedSounds = new Array<Sound>();
+	private final FloatArray queuedVolumes = new FloatArray();
+	private final FloatArray queuedPitches = new FloatArray();
 	
 	// singleton: prevent instantiation from other classes  
 	private AudioManager() 
@@ -59,10 +68,58 @@ public class AudioManager
 	 */
 	public void play(Sound sound, float volume, float pitch,  float pan)
 	{    
-		if (!GamePreferences.instance.sound) return;
+		if (!GamePreferences.instance.sound || muted) return;
 		sound.play(GamePreferences.instance.volSound * volume,   pitch, pan);  
 	}
 	
+	/**
+	 * queues the sound to be played by playQueued()
+	 * @param sound
+	 */
+	public void queue(Sound sound)
+	{
+		queue(sound, 1, 1);
+	}
+	
+	/**
+	 * queues the sound at a set volume and pitch to be played by
+	 * playQueued()
+	 * @param sound
+	 * @param volume
+	 * @param pitch
+	 */
+	public void queue(Sound sound, float volume, float pitch)
+	{
+		if(muted) return;
+		queuedSounds.add(sound);
+		queuedVolumes.add(volume);
+		queuedPitches.add(pitch);
+	}
+	
+	/**
+	 * plays the queued sounds. Must be called on the render thread
+	 * while the world is not being simulated.
+	 */
+	public void playQueued()
+	{
+		for(int i = 0; i < queuedSounds.size; i++)
+		{
+			play(queuedSounds.get(i), queuedVolumes.get(i), queuedPitches.get(i));
+		}
+		queuedSounds.clear();
+		queuedVolumes.clear();
+		queuedPitches.clear();
+	}
+	
+	/**
+	 * mutes or unmutes the sounds, used while a replay skips ahead
+	 * @param muted
+	 */
+	public void setMuted(boolean muted)
+	{
+		this.muted = muted;
+	}
+	
 	/**
 	 * plays the music
 	 * @param music
@@ -1,14 +1,14 @@
 package objects;
 
+import java.util.Random;
+
 import screens.GamePreferences;
 import screens.CharacterSkin;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.ParticleEffect;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
 import com.lobiancogdx.game.Constants;
 
 /**
@@ -20,12 +20,15 @@ import com.lobiancogdx.game.Constants;
 public class BunnyHead extends AbstractGameObject
 {
 	public static final String TAG = BunnyHead.class.getName();
-	public ParticleEffect dustParticles = new ParticleEffect();
 	
 	private final float JUMP_TIME_MAX = 0.3f;
 	private final float JUMP_TIME_MIN = 0.1f;
 	private final float JUMP_TIME_OFFSET_FLYING = JUMP_TIME_MAX - 0.018f;
 	
+	//pitches the jump sounds. The bunny head is updated on the thread
+	//of the simulation, while MathUtils.random is used by the renderer.
+	private final Random soundRandom = new RandomXS128();
+	
 	private Animation animNormal;
 	private Animation animCopterTransform;
 	private Animation animCopterTransformBack;
@@ -96,10 +99,6 @@ public class BunnyHead extends AbstractGameObject
 		//Power-ups
 		hasFeatherPowerup = false;
 		timeLeftFeatherPowerup = 0;
-		
-		//Particles
-		dustParticles.load(Gdx.files.internal("assets-raw/particles/dust.pfx"), 
-				Gdx.files.internal("assets-raw/particles"));
 	}
 	
 	/**
@@ -113,7 +112,7 @@ public class BunnyHead extends AbstractGameObject
 		case GROUNDED: //Character is standing on a platform
 			if(jumpKeyPressed)
 			{
-				AudioManager.instance.play(Assets.instance.sounds.jump);
+				AudioManager.instance.queue(Assets.instance.sounds.jump);
 				//Start counting jump time from the beginning
 				timeJumping = 0;
 				jumpState = JUMP_STATE.JUMP_RISING;
@@ -129,8 +128,8 @@ public class BunnyHead extends AbstractGameObject
 		case JUMP_FALLING: //Falling down after jump
 			if(jumpKeyPressed && hasFeatherPowerup)
 			{
-				AudioManager.instance.play(Assets.instance.sounds.jumpWithFeather, 
-						1, MathUtils.random(1.0f, 1.1f));
+				AudioManager.instance.queue(Assets.instance.sounds.jumpWithFeather, 
+						1, 1.0f + soundRandom.nextFloat() * 0.1f);
 				timeJumping = JUMP_TIME_OFFSET_FLYING;
 				jumpState = JUMP_STATE.JUMP_RISING;
 			}
@@ -169,7 +168,19 @@ public class BunnyHead extends AbstractGameObject
 	@Override
 	public void update(float deltaTime)
 	{
-		super.update(deltaTime);
+		if(body == null)
+		{
+			super.update(deltaTime);
+		}
+		else
+		{
+			//The motion is still worked out here, the body only
+			//resolves it against the rocks when the world is stepped
+			stateTime += deltaTime;
+			updateMotionX(deltaTime);
+			updateMotionY(deltaTime);
+			body.setLinearVelocity(velocity);
+		}
 		if(velocity.x != 0)
 		{
 			viewDirection = velocity.x < 0 ? VIEW_DIRECTION.LEFT : VIEW_DIRECTION.RIGHT;
@@ -195,7 +206,6 @@ public class BunnyHead extends AbstractGameObject
 			setFeatherPowerup(false);
 			setAnimation(animCopterTransformBack);
 		}
-		dustParticles.update(deltaTime);
 		//Change animation state according to feather power-up
 		if(hasFeatherPowerup)
 		{
@@ -266,7 +276,6 @@ public class BunnyHead extends AbstractGameObject
 		}
 		if(jumpState != JUMP_STATE.GROUNDED)
 		{
-			dustParticles.allowCompletion();
 			super.updateMotionY(deltaTime);
 		}
 	}
@@ -275,15 +284,15 @@ public class BunnyHead extends AbstractGameObject
 	 * draws the image of the bunny head for the game.
 	 */
 	@Override
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
 		TextureRegion reg = null;
 		
-		//Draw Particles
-		dustParticles.draw(batch);
+		//Draw Particles, the renderer owns them
+		state.addLayer(RenderState.LAYER_DUST);
 		
 		//Apply Skin Color
-		batch.setColor(CharacterSkin.values()[GamePreferences.instance.charSkin].getColor());
+		state.setColor(CharacterSkin.values()[GamePreferences.instance.charSkin].getColor());
 		
 		float dimCorrectionX = 0;
 		float dimCorrectionY = 0;
@@ -295,12 +304,11 @@ public class BunnyHead extends AbstractGameObject
 		
 		//Draw image
 		reg = animation.getKeyFrame(stateTime, true);
-		batch.draw(reg.getTexture(), position.x, position.y, origin.x, origin.y,
-				dimension.x + dimCorrectionX, dimension.y + dimCorrectionY, scale.x, scale.y, rotation, reg.getRegionX(),
-				reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(),
-				viewDirection == VIEW_DIRECTION.LEFT, false);
+		state.add(reg, position.x, position.y, origin.x, origin.y,
+				dimension.x + dimCorrectionX, dimension.y + dimCorrectionY, scale.x, scale.y, rotation,
+				viewDirection == VIEW_DIRECTION.LEFT);
 		
 		//Reset color to white
-		batch.setColor(1, 1, 1, 1);
+		state.setColor(1, 1, 1, 1);
 	}
 }
\ No newline at end of file
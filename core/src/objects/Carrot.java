@@ -1,16 +1,27 @@
 package objects;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
 /**
  * The carrot class is responsible for handling the carrot object.
  * @author Jason LoBianco
  */
-public class Carrot extends AbstractGameObject
+public class Carrot extends AbstractGameObject implements Poolable
 {
 	private TextureRegion regCarrot;
 	
+	//set once the carrot has come to rest on a rock, from then on it
+	//floats along with the rock
+	public boolean settled;
+	//time the carrot has been resting so far
+	public float restTime;
+	//the rock a settled carrot rests on and its height above the
+	//floating motion of the rock
+	public Rock rock;
+	private float restHeight;
+	
 	/**
 	 * constructor that calls the init method.
 	 */
@@ -31,16 +42,61 @@ public class Carrot extends AbstractGameObject
 		origin.set(dimension.x / 2, dimension.y / 2);
 	}
 	
+	/**
+	 * prepares a pooled carrot for reuse. The body stays with the
+	 * carrot, disabled, so it doesn't have to be created again.
+	 */
+	@Override
+	public void reset()
+	{
+		if(body != null) body.setActive(false);
+		settled = false;
+		restTime = 0;
+		rock = null;
+	}
+	
+	/**
+	 * settles a carrot that has come to rest on a rock. Its body turns
+	 * kinematic, so it still holds up the carrots that fall on it, and
+	 * is no longer pushed around, only carried by the rock.
+	 * @param rock
+	 * @param time the level's clock of the floating motion
+	 */
+	public void settle(Rock rock, float time)
+	{
+		this.rock = rock;
+		restHeight = position.y - rock.getFloatOffset(time);
+		body.setType(BodyType.KinematicBody);
+		body.setLinearVelocity(0, 0);
+		body.setAngularVelocity(0);
+		settled = true;
+	}
+	
+	/**
+	 * moves a settled carrot along with the floating motion of its
+	 * rock. The body is given the velocity that takes it there in the
+	 * next step of the physics world.
+	 * @param time the level's clock of the floating motion
+	 * @param deltaTime
+	 */
+	public void updateSettled(float time, float deltaTime)
+	{
+		position.y = restHeight + rock.getFloatOffset(time);
+		if(deltaTime > 0)
+		{
+			body.setLinearVelocity(0, (position.y - body.getPosition().y) / deltaTime);
+		}
+	}
+	
 	/**
 	 * draws the carrot.
 	 */
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
 		TextureRegion reg = null;
 		reg = regCarrot;
-		batch.draw(reg.getTexture(), position.x - origin.x, position.y - origin.y, 
+		state.add(reg, position.x - origin.x, position.y - origin.y, 
 				origin.x, origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation, 
-				reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), 
-				false, false);
+				false);
 	}
 }
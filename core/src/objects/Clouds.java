@@ -3,15 +3,21 @@ package objects;
  * The clouds class is responsible for drawing and updating all of the clouds in the world.
  * @author Jason LoBianco
  */
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import java.util.Random;
+
+import screens.QualityPreset;
+
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 
 public class Clouds extends AbstractGameObject
 {
+	//clouds wrap around this far outside of the clouds' length
+	private final float WRAP_MARGIN = 10;
+	
 	private float length;
+	//clock of the previous tick of the simulation
+	private float lastStateTime;
 	
 	private Array<TextureRegion> regClouds;
 	private Array<Cloud> clouds;
@@ -23,6 +29,9 @@ public class Clouds extends AbstractGameObject
 	private class Cloud extends AbstractGameObject
 	{
 		private TextureRegion regCloud;
+		//x position at time 0 and speed to the left
+		private float startX;
+		private float speed;
 		
 		/**
 		 * empty constructor
@@ -45,30 +54,31 @@ public class Clouds extends AbstractGameObject
 		 * draws a cloud
 		 */
 		@Override
-		public void render(SpriteBatch batch)
+		public void render(RenderState state)
 		{
 			TextureRegion reg = regCloud;
-			batch.draw(reg.getTexture(), position.x + origin.x, position.y + origin.y,
+			state.add(reg, position.x + origin.x, position.y + origin.y,
 					origin.x, origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation,
-					reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(),
-					false, false);
+					false);
 		}
 	}
 	
 	/**
 	 * constructor that calls init method
 	 * @param length
+	 * @param random generator of the simulation
 	 */
-	public Clouds(float length)
+	public Clouds(float length, Random random)
 	{
 		this.length = length;
-		init();
+		init(random);
 	}
 	
 	/**
 	 * init all the clouds into the clouds array
+	 * @param random
 	 */
-	private void init()
+	private void init(Random random)
 	{
 		dimension.set(3.0f, 1.5f);
 		regClouds = new Array<TextureRegion>();
@@ -81,67 +91,98 @@ public class Clouds extends AbstractGameObject
 		clouds = new Array<Cloud>(2 * numClouds);
 		for(int i = 0; i < numClouds; i++)
 		{
-			Cloud cloud = spawnCloud();
-			cloud.position.x = i * distFac;
+			Cloud cloud = new Cloud();
+			spawnCloud(cloud, random);
+			cloud.startX = position.x + i * distFac;
 			clouds.add(cloud);
 		}
 	}
 	
 	/**
-	 * @return the cloud to be spawned
+	 * gives a cloud an image, height and speed
+	 * @param cloud
+	 * @param random
 	 */
-	private Cloud spawnCloud()
+	private void spawnCloud(Cloud cloud, Random random)
 	{
-		Cloud cloud = new Cloud();
 		cloud.dimension.set(dimension);
 		//select random cloud image
-		cloud.setRegion(regClouds.random());
-		//position
-		Vector2 pos = new Vector2();
-		pos.x = length + 10;
-		pos.y += 1.75;
-		pos.y += MathUtils.random(0.0f, 0.2f) * (MathUtils.randomBoolean() ? 1 : -1);
-		cloud.position.set(pos);
-		//speed
-		Vector2 speed = new Vector2();
-		speed.x += 0.5f;	//base speed
-		//random additional speed
-		speed.x += MathUtils.random(0.0f, 0.75f);
-		cloud.terminalVelocity.set(speed);
-		speed.x *= -1;		//move left
-		cloud.velocity.set(speed);
-		return cloud;
+		cloud.setRegion(regClouds.get(random.nextInt(regClouds.size)));
+		//height
+		cloud.position.y = 1.75f;
+		cloud.position.y += random.nextFloat() * 0.2f * (random.nextBoolean() ? 1 : -1);
+		//base speed plus random additional speed
+		cloud.speed = 0.5f + random.nextFloat() * 0.75f;
 	}
 	
 	/**
-	 * updates the position of all the clouds
+	 * returns the x position of a cloud at a time. A cloud that drifts
+	 * out on the left wraps around to the right end, so the position
+	 * is a function of the time alone.
+	 * @param cloud
+	 * @param time
+	 * @return
 	 */
+	private float getCloudX(Cloud cloud, float time)
+	{
+		float left = position.x - WRAP_MARGIN;
+		float span = length + 2 * WRAP_MARGIN;
+		float x = (cloud.startX - cloud.speed * time - left) % span;
+		if(x < 0) x += span;
+		return left + x;
+	}
+	
 	@Override
-	public void update(float deltaTime)
+	public void saveState()
+	{
+		super.saveState();
+		lastStateTime = stateTime;
+	}
+	
+	/**
+	 * moves the clouds along with the origin of the world
+	 */
+	@Override
+	public void shiftOrigin(float dx)
 	{
-		for(int i = clouds.size - 1; i>= 0; i--)
+		super.shiftOrigin(dx);
+		for(Cloud cloud : clouds)
 		{
-			Cloud cloud = clouds.get(i);
-			cloud.update(deltaTime);
-			if(cloud.position.x < -10)
-			{
-				//cloud moved outside of world.
-				//destroy and spawn new cloud at end of level.
-				clouds.removeIndex(i);
-				clouds.add(spawnCloud());
-			}
+			cloud.startX -= dx;
 		}
 	}
 	
 	/**
-	 * draws all of the clouds
+	 * advances the clock the clouds move by
 	 */
 	@Override
-	public void render(SpriteBatch batch)
+	public void update(float deltaTime)
 	{
-		for(Cloud cloud : clouds)
+		stateTime += deltaTime;
+	}
+	
+	/**
+	 * draws all of the clouds, each moving from where it was at the
+	 * previous tick
+	 */
+	@Override
+	public void render(RenderState state)
+	{
+		//lower quality presets draw only some of the clouds. All of
+		//them are still made, so the random numbers of the simulation
+		//are taken the same on every preset.
+		int spacing = QualityPreset.current().getCloudSpacing();
+		for(int i = 0; i < clouds.size; i += spacing)
 		{
-			cloud.render(batch);
+			Cloud cloud = clouds.get(i);
+			float lastX = getCloudX(cloud, lastStateTime);
+			cloud.position.x = getCloudX(cloud, stateTime);
+			//the clouds drift to the left, one that moved to the right
+			//has wrapped around and jumps to its new place
+			float dx = cloud.position.x - lastX;
+			state.setMotion(dx < 0 ? dx : 0, 0, 0);
+			cloud.render(state);
 		}
+		state.setMotion(0, 0, 0);
 	}
 }
@@ -4,10 +4,10 @@ package objects;
  * Feathers in the game.
  * @author Jason LoBianco
  */
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Feather extends AbstractGameObject
+public class Feather extends AbstractGameObject implements Poolable
 {
 	private TextureRegion regFeather;
 	
@@ -36,18 +36,37 @@ public class Feather extends AbstractGameObject
 		collected = false;
 	}
 	
+	/**
+	 * prepares a pooled feather for reuse. The body must have been
+	 * destroyed already.
+	 */
+	@Override
+	public void reset()
+	{
+		body = null;
+		collected = false;
+	}
+	
+	/**
+	 * feathers don't move or animate, so there is nothing to update.
+	 */
+	@Override
+	public void update(float deltaTime)
+	{
+		
+	}
+	
 	/**
 	 * draws the feather.
 	 */
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
 		if(collected) return;
 		
 		TextureRegion reg = null;
 		reg = regFeather;
-		batch.draw(reg.getTexture(), position.x, position.y, origin.x, origin.y,
-				dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(),
-				reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), false, false);
+		state.add(reg, position.x, position.y, origin.x, origin.y,
+				dimension.x, dimension.y, scale.x, scale.y, rotation, false);
 	}
 	
 	/**
@@ -1,6 +1,5 @@
 package objects;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 /**
@@ -34,13 +33,12 @@ public class Goal extends AbstractGameObject
 	/**
 	 * draws the goal.
 	 */
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
 		TextureRegion reg = null;
 		reg = regGoal;
-		batch.draw(reg.getTexture(), position.x - origin.x, position.y - origin.y, 
+		state.add(reg, position.x - origin.x, position.y - origin.y, 
 				origin.x, origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation, 
-				reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), 
-				false, false);
+				false);
 	}
 }
@@ -4,11 +4,10 @@ package objects;
  * GoldCoins in the game.
  * @author Jason LoBianco
  */
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class GoldCoin extends AbstractGameObject
+public class GoldCoin extends AbstractGameObject implements Poolable
 {
 	private TextureRegion regGoldCoin;
 	
@@ -29,8 +28,8 @@ public class GoldCoin extends AbstractGameObject
 	{
 		dimension.set(0.5f, 0.5f);
 		
+		//the level starts every gold coin's animation at its own point
 		setAnimation(Assets.instance.goldCoin.animGoldCoin);
-		stateTime = MathUtils.random(0.0f, 1.0f);
 		
 		//Set bounding box for collision detection
 		bounds.set(0, 0, dimension.x, dimension.y);
@@ -38,18 +37,38 @@ public class GoldCoin extends AbstractGameObject
 		collected = false;
 	}
 	
+	/**
+	 * prepares a pooled gold coin for reuse. The body must have been
+	 * destroyed already.
+	 */
+	@Override
+	public void reset()
+	{
+		body = null;
+		collected = false;
+	}
+	
+	/**
+	 * advances the animation. Gold coins don't move, so there is
+	 * no motion to integrate.
+	 */
+	@Override
+	public void update(float deltaTime)
+	{
+		stateTime += deltaTime;
+	}
+	
 	/**
 	 * draws the gold coin.
 	 */
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
 		if(collected) return;
 		
 		TextureRegion reg = null;
 		reg = animation.getKeyFrame(stateTime, true);
-		batch.draw(reg.getTexture(), position.x, position.y, origin.x, origin.y,
-				dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(),
-				reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), false, false);
+		state.add(reg, position.x, position.y, origin.x, origin.y,
+				dimension.x, dimension.y, scale.x, scale.y, rotation, false);
 	}
 	
 	/**
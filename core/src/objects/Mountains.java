@@ -3,10 +3,12 @@ package objects;
  * The Mountains class is responsible for creating and updating the mountains.
  * @author Jason LoBianco
  */
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import screens.QualityPreset;
+
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
+import com.lobiancogdx.game.Constants;
 
 public class Mountains extends AbstractGameObject
 {
@@ -14,10 +16,24 @@ public class Mountains extends AbstractGameObject
 	private TextureRegion regMountainRight;
 	
 	private int length;
+	//endless mountains repeat without end, the others span the level
+	private boolean endless;
+	//width of the visible part of the world, only the mountains
+	//in it are drawn
+	private float viewportWidth;
+	//how far the origin of the world has been moved, the mountains
+	//scroll by the camera's distance from the original one
+	private double originX;
 	
 	public Mountains(int length)
+	{
+		this(length, false);
+	}
+	
+	public Mountains(int length, boolean endless)
 	{
 		this.length = length;
+		this.endless = endless;
 		init();
 	}
 	
@@ -38,63 +54,108 @@ public class Mountains extends AbstractGameObject
 	
 	/**
 	 * updates the position of the background
-	 * @param camPosition
+	 * @param lastCamPosition camera at the previous tick
+	 * @param camPosition camera at the current tick
+	 * @param viewportWidth width of the visible part of the world
 	 */
-	public void updateScrollPosition(Vector2 camPosition)
+	public void updateScrollPosition(Vector2 lastCamPosition, Vector2 camPosition, float viewportWidth)
 	{
+		lastPosition.set(lastCamPosition.x, position.y);
 		position.set(camPosition.x, position.y);
+		this.viewportWidth = viewportWidth;
+	}
+	
+	/**
+	 * keeps the mountains scrolled to where they were when the origin
+	 * of the world is moved
+	 */
+	@Override
+	public void shiftOrigin(float dx)
+	{
+		super.shiftOrigin(dx);
+		originX += dx;
+	}
+	
+	/**
+	 * returns how far a layer of mountains is scrolled. For endless
+	 * mountains the origin's share is wrapped to the width of a pair
+	 * of mountains, so it stays precise however far the origin has
+	 * been moved.
+	 * @param parallaxSpeedX
+	 * @return
+	 */
+	private float getScrollX(float parallaxSpeedX)
+	{
+		double originShift = originX * (1 - parallaxSpeedX);
+		if(endless) originShift %= 2 * dimension.x;
+		return position.x * parallaxSpeedX - (float)originShift;
 	}
 	
 	/**
 	 * draws the mountains starting with the left then the right.
-	 * @param batch
+	 * A layer moves by its share of the camera's motion since the
+	 * previous tick.
+	 * @param state
 	 * @param offsetX
 	 * @param offsetY
 	 * @param tintColor
 	 */
-	private void drawMountain(SpriteBatch batch, float offsetX, float offsetY, float tintColor, float parallaxSpeedX)
+	private void drawMountain(RenderState state, float offsetX, float offsetY, float tintColor, float parallaxSpeedX)
 	{
 		TextureRegion reg = null;
-		batch.setColor(tintColor, tintColor, tintColor, 1);
-		float xRel = dimension.x * offsetX;
+		state.setColor(tintColor, tintColor, tintColor, 1);
+		state.setMotion((position.x - lastPosition.x) * parallaxSpeedX, 0, 0);
 		float yRel = dimension.y * offsetY;
+		float pairWidth = 2 * dimension.x;
+		//left end of the first pair of mountains of this layer
+		float start = origin.x + dimension.x * offsetX + getScrollX(parallaxSpeedX);
 		
-		//mountains span the whole level
-		int mountainLength = 0;
-		mountainLength += MathUtils.ceil(length / (2 * dimension.x) * (1 - parallaxSpeedX));
-		mountainLength += MathUtils.ceil(0.5f + offsetX);
-		for(int i = 0; i < mountainLength; i++)
+		//only the pairs that overlap the visible part of the world
+		float halfWidth = viewportWidth / 2 + Constants.RENDER_CULL_MARGIN;
+		int first = MathUtils.floor((position.x - halfWidth - start) / pairWidth);
+		int last = MathUtils.floor((position.x + halfWidth - start) / pairWidth);
+		if(!endless)
+		{
+			//mountains span the whole level
+			int mountainLength = 0;
+			mountainLength += MathUtils.ceil(length / pairWidth * (1 - parallaxSpeedX));
+			mountainLength += MathUtils.ceil(0.5f + offsetX);
+			first = Math.max(first, 0);
+			last = Math.min(last, mountainLength - 1);
+		}
+		for(int i = first; i <= last; i++)
 		{
+			float x = start + i * pairWidth;
+			
 			//mountain left
 			reg = regMountainLeft;
-			batch.draw(reg.getTexture(), origin.x + xRel + position.x * parallaxSpeedX, position.y + origin.y + yRel, origin.x,
-					origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(),
-					reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), false, false);
-			xRel += dimension.x;
+			state.add(reg, x, position.y + origin.y + yRel, origin.x,
+					origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation, false);
 			
 			//mountain right
 			reg = regMountainRight;
-			batch.draw(reg.getTexture(), origin.x + xRel + position.x * parallaxSpeedX, position.y + origin.y + yRel, origin.x,
-					origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(),
-					reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), false, false);
-			xRel += dimension.x;
+			state.add(reg, x + dimension.x, position.y + origin.y + yRel, origin.x,
+					origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation, false);
 		}
 		
 		//reset color to white
-		batch.setColor(1, 1, 1, 1);
+		state.setColor(1, 1, 1, 1);
+		state.setMotion(0, 0, 0);
 	}
 	
 	/**
 	 * draws the mountains in 3 layers
 	 */
 	@Override
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
+		//lower quality presets leave out the farthest layers first
+		int layers = QualityPreset.current().getMountainLayers();
 		//distant mountains (dark gray)
-		drawMountain(batch, 0.5f, 0.5f, 0.5f, 0.8f);
+		if(layers >= 3) drawMountain(state, 0.5f, 0.5f, 0.5f, 0.8f);
 		//distant mountains (gray)
-		drawMountain(batch, 0.25f, 0.25f, 0.7f, 0.5f);
+		if(layers >= 2) drawMountain(state, 0.25f, 0.25f, 0.7f, 0.5f);
 		//distant mountains (light gray)
-		drawMountain(batch, 0.0f, 0.0f, 0.9f, 0.3f);
+		drawMountain(state, 0.0f, 0.0f, 0.9f, 0.3f);
 	}
 }
\ No newline at end of file
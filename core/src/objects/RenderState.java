@@ -0,0 +1,340 @@
+package objects;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * The RenderState class holds everything that is drawn of the game
+ * world at one tick of the simulation: the images of the objects with
+ * their transforms and tints, the camera and the values the GUI shows.
+ * The simulation writes it and the renderer only reads it, so the two
+ * never touch the same objects and can run on different threads.
+ *
+ * Every image also knows where it was at the previous tick, so the
+ * renderer can draw it in between two ticks.
+ * @author Jason LoBianco
+ */
+public class RenderState
+{
+	private static final float WHITE = Color.WHITE.toFloatBits();
+	
+	//places among the images at which the renderer draws what is not
+	//in the list: the rocks from their cache and the dust particles
+	public static final int LAYER_ROCKS = 0;
+	public static final int LAYER_DUST = 1;
+	
+	/**
+	 * One image of the game world.
+	 * @author Jason LoBianco
+	 */
+	public static class Sprite
+	{
+		public TextureRegion region;
+		public float x;
+		public float y;
+		public float originX;
+		public float originY;
+		public float width;
+		public float height;
+		public float scaleX;
+		public float scaleY;
+		public float rotation;
+		public boolean flipX;
+		//packed tint
+		public float color;
+		//transform at the previous tick
+		public float lastX;
+		public float lastY;
+		public float lastRotation;
+		//phase the image floats in, only used by the rocks
+		public int floatPhase;
+		//whether this is the first image of an object, so the images
+		//can be counted by object
+		public boolean first;
+	}
+	
+	private final Pool<Sprite> spritePool = new Pool<Sprite>()
+	{
+		@Override
+		protected Sprite newObject()
+		{
+			return new Sprite();
+		}
+	};
+	
+	//images in the order they are drawn and the number of them that
+	//is drawn before each layer
+	private final Array<Sprite> sprites = new Array<Sprite>();
+	private final int[] layers = new int[2];
+	//images of the resident rocks at their base height. They are only
+	//added again when the rocks have changed.
+	private final Array<Sprite> rocks = new Array<Sprite>();
+	private int rockVersion = -1;
+	private boolean addingRocks;
+	
+	//tint, motion since the previous tick and floating phase of the
+	//images that are added next
+	private float color = WHITE;
+	private float motionX;
+	private float motionY;
+	private float motionRotation;
+	private int floatPhase;
+	private boolean nextIsFirst;
+	
+	//how far the frame is in between the previous and the current tick
+	public float alpha;
+	
+	//camera at the previous and the current tick
+	public final Vector2 lastCameraPosition = new Vector2();
+	public final Vector2 cameraPosition = new Vector2();
+	public float cameraZoom = 1;
+	private final Vector2 renderCameraPosition = new Vector2();
+	
+	//clock of the ambient motion of the rocks at the previous and the
+	//current tick
+	public float lastTime;
+	public float time;
+	
+	//values shown by the GUI
+	public boolean loading;
+	public boolean gameOver;
+	public int score;
+	public float scoreVisual;
+	public int lives;
+	public float livesVisual;
+	public float timeLeftFeatherPowerup;
+	//items and carrots in sight and out of it. The rocks are counted
+	//by the renderer, which decides which of them are drawn.
+	public int drawnCount;
+	public int culledCount;
+	
+	/**
+	 * removes all images, except for the rocks, to write the state of
+	 * a new tick
+	 */
+	public void clear()
+	{
+		spritePool.freeAll(sprites);
+		sprites.clear();
+		layers[LAYER_ROCKS] = 0;
+		layers[LAYER_DUST] = 0;
+		color = WHITE;
+		setMotion(0, 0, 0);
+	}
+	
+	/**
+	 * sets the tint of the images that are added next
+	 * @param r
+	 * @param g
+	 * @param b
+	 * @param a
+	 */
+	public void setColor(float r, float g, float b, float a)
+	{
+		color = Color.toFloatBits(r, g, b, a);
+	}
+	
+	/**
+	 * sets the tint of the images that are added next
+	 * @param tint
+	 */
+	public void setColor(Color tint)
+	{
+		color = tint.toFloatBits();
+	}
+	
+	/**
+	 * sets how far the images that are added next have moved and turned
+	 * since the previous tick
+	 * @param dx
+	 * @param dy
+	 * @param dRotation
+	 */
+	public void setMotion(float dx, float dy, float dRotation)
+	{
+		motionX = dx;
+		motionY = dy;
+		motionRotation = dRotation;
+	}
+	
+	/**
+	 * adds an image, with the same arguments as SpriteBatch.draw()
+	 * takes for a region of a texture
+	 * @param region
+	 * @param x
+	 * @param y
+	 * @param originX
+	 * @param originY
+	 * @param width
+	 * @param height
+	 * @param scaleX
+	 * @param scaleY
+	 * @param rotation
+	 * @param flipX
+	 */
+	public void add(TextureRegion region, float x, float y, float originX, float originY,
+			float width, float height, float scaleX, float scaleY, float rotation, boolean flipX)
+	{
+		Sprite sprite = spritePool.obtain();
+		sprite.region = region;
+		sprite.x = x;
+		sprite.y = y;
+		sprite.originX = originX;
+		sprite.originY = originY;
+		sprite.width = width;
+		sprite.height = height;
+		sprite.scaleX = scaleX;
+		sprite.scaleY = scaleY;
+		sprite.rotation = rotation;
+		sprite.flipX = flipX;
+		sprite.color = color;
+		sprite.lastX = x - motionX;
+		sprite.lastY = y - motionY;
+		sprite.lastRotation = rotation - motionRotation;
+		sprite.floatPhase = floatPhase;
+		sprite.first = nextIsFirst;
+		nextIsFirst = false;
+		if(addingRocks)
+		{
+			rocks.add(sprite);
+		}
+		else
+		{
+			sprites.add(sprite);
+		}
+	}
+	
+	/**
+	 * marks the image that is added next as the first one of a new
+	 * object
+	 */
+	public void beginObject()
+	{
+		nextIsFirst = true;
+	}
+	
+	/**
+	 * marks the place among the images at which a layer is drawn
+	 * @param layer LAYER_ROCKS or LAYER_DUST
+	 */
+	public void addLayer(int layer)
+	{
+		layers[layer] = sprites.size;
+	}
+	
+	/**
+	 * returns the number of images that are drawn before a layer
+	 * @param layer LAYER_ROCKS or LAYER_DUST
+	 * @return
+	 */
+	public int getLayer(int layer)
+	{
+		return layers[layer];
+	}
+	
+	/**
+	 * returns the number of images, without the rocks
+	 * @return
+	 */
+	public int getSpriteCount()
+	{
+		return sprites.size;
+	}
+	
+	/**
+	 * returns the version of the rocks that were added last
+	 * @return
+	 */
+	public int getRockVersion()
+	{
+		return rockVersion;
+	}
+	
+	/**
+	 * removes the images of the rocks, the images that are added until
+	 * endRocks() is called are those of the rocks of a new version
+	 * @param version
+	 */
+	public void beginRocks(int version)
+	{
+		spritePool.freeAll(rocks);
+		rocks.clear();
+		rockVersion = version;
+		addingRocks = true;
+	}
+	
+	/**
+	 * sets the phase the images that are added next float in
+	 * @param phase
+	 */
+	public void setFloatPhase(int phase)
+	{
+		floatPhase = phase;
+	}
+	
+	/**
+	 * ends adding the images of the rocks
+	 */
+	public void endRocks()
+	{
+		addingRocks = false;
+		floatPhase = 0;
+	}
+	
+	/**
+	 * returns the images of the rocks
+	 * @return
+	 */
+	public Array<Sprite> getRocks()
+	{
+		return rocks;
+	}
+	
+	/**
+	 * returns the position of the camera in between the previous and
+	 * the current tick
+	 * @return
+	 */
+	public Vector2 getCameraPosition()
+	{
+		return renderCameraPosition.set(lastCameraPosition).lerp(cameraPosition, alpha);
+	}
+	
+	/**
+	 * returns the clock of the rocks in between the previous and the
+	 * current tick
+	 * @return
+	 */
+	public float getTime()
+	{
+		return lastTime + (time - lastTime) * alpha;
+	}
+	
+	/**
+	 * draws a range of the images in between the previous and the
+	 * current tick
+	 * @param batch
+	 * @param start index of the first image
+	 * @param end index after the last image
+	 */
+	public void draw(SpriteBatch batch, int start, int end)
+	{
+		for(int i = start; i < end; i++)
+		{
+			Sprite sprite = sprites.get(i);
+			TextureRegion reg = sprite.region;
+			batch.setColor(sprite.color);
+			batch.draw(reg.getTexture(), sprite.lastX + (sprite.x - sprite.lastX) * alpha,
+					sprite.lastY + (sprite.y - sprite.lastY) * alpha, sprite.originX, sprite.originY,
+					sprite.width, sprite.height, sprite.scaleX, sprite.scaleY,
+					sprite.lastRotation + (sprite.rotation - sprite.lastRotation) * alpha,
+					reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(),
+					sprite.flipX, false);
+		}
+		batch.setColor(1, 1, 1, 1);
+	}
+}
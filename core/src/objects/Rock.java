@@ -4,23 +4,29 @@ package objects;
  * rocks in the game.
  * @author Jason LoBianco
  */
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Rock extends AbstractGameObject
+public class Rock extends AbstractGameObject implements Poolable
 {
 	private TextureRegion regEdge;
 	private TextureRegion regMiddle;
 	
 	private int length;
 
-	private final float FLOAT_CYCLE_TIME = 2.0f;
-	private final float FLOAT_AMPLITUDE = 0.25f;
-	private float floatCycleTimeLeft;
-	private boolean floatingDownwards;
-	private Vector2 floatTargetPosition;
+	//time to float from the lowest to the highest point and the
+	//distance the rock floats above and below its base height
+	private static final float FLOAT_CYCLE_TIME = 2.0f;
+	private static final float FLOAT_AMPLITUDE = 0.1f;
+	//number of phases the rocks float in. Rocks in the same phase
+	//move together, so they can be drawn with one transform.
+	public static final int FLOAT_PHASES = 8;
+	private int floatPhase;
+	private float floatBaseHeight;
+	
+	//last frame in which the rock was in the level's active area
+	public int activeFrame = -1;
 	
 	/**
 	 * Constructor that calls the init() method to set up the
@@ -44,31 +50,96 @@ public class Rock extends AbstractGameObject
 		//Start length of this rock
 		setLength(1);
 		
-		floatingDownwards = false;
-		floatCycleTimeLeft = MathUtils.random(0, FLOAT_CYCLE_TIME / 2);
-		floatTargetPosition = null;
+		//the level gives every rock the phase it floats in
+		setFloatPhase(0);
+	}
+	
+	/**
+	 * sets the floating motion around the rock's current position,
+	 * in one of FLOAT_PHASES phases spread over a whole cycle
+	 * @param phase
+	 */
+	public void setFloatPhase(int phase)
+	{
+		floatPhase = phase;
+		floatBaseHeight = position.y;
+	}
+	
+	/**
+	 * returns the phase the rock floats in
+	 * @return
+	 */
+	public int getFloatPhase()
+	{
+		return floatPhase;
 	}
 	
 	/**
-	 * updates the position of the rock
+	 * returns how far the rocks of a phase float above their base
+	 * height at a time of the level's clock
+	 * @param phase
+	 * @param time
+	 * @return
+	 */
+	public static float getFloatOffset(int phase, float time)
+	{
+		float phaseTime = phase * FLOAT_CYCLE_TIME * 2 / FLOAT_PHASES;
+		return FLOAT_AMPLITUDE * MathUtils.sin((time + phaseTime) * MathUtils.PI / FLOAT_CYCLE_TIME);
+	}
+	
+	/**
+	 * returns how far the rock floats above its base height at a
+	 * time of the level's clock
+	 * @param time
+	 * @return
+	 */
+	public float getFloatOffset(float time)
+	{
+		return getFloatOffset(floatPhase, time);
+	}
+	
+	/**
+	 * prepares a pooled rock for reuse. The body must have been
+	 * released already.
 	 */
 	@Override
-	public void update(float deltaTime)
+	public void reset()
 	{
-		super.update(deltaTime);
-		floatCycleTimeLeft -= deltaTime;
-		if(floatCycleTimeLeft <= 0)
-		{
-			floatCycleTimeLeft = FLOAT_CYCLE_TIME;
-			floatingDownwards = !floatingDownwards;
-			body.setLinearVelocity(0, FLOAT_AMPLITUDE * (floatingDownwards ? -1 : 1));
-		}
-		else
+		body = null;
+		activeFrame = -1;
+		setLength(1);
+	}
+	
+	/**
+	 * moves the rock to its floating height at a time of the level's
+	 * clock. Nothing is integrated from frame to frame, so the motion
+	 * can't drift. The rocks in the active area have bodies, which
+	 * follow the motion through a velocity that takes them to the same
+	 * height within the frame, so the bunny head in the Box2D mode and
+	 * the carrots ride the rocks they rest on.
+	 * @param time
+	 * @param deltaTime
+	 */
+	public void updateFloat(float time, float deltaTime)
+	{
+		position.y = floatBaseHeight + getFloatOffset(time);
+		if(body != null && deltaTime > 0)
 		{
-			body.setLinearVelocity(body.getLinearVelocity().scl(0.98f));
+			body.setLinearVelocity(0, (getFloatOffset(time) - getFloatOffset(time - deltaTime)) / deltaTime);
 		}
 	}
 	
+	/**
+	 * wakes the rock up when it comes back into the level's active
+	 * area. It is moved to its floating height at a time of the
+	 * level's clock, where its body is then placed.
+	 * @param time
+	 */
+	public void wake(float time)
+	{
+		position.y = floatBaseHeight + getFloatOffset(time);
+	}
+	
 	/**
 	 * set the length of the rocks
 	 * @param length
@@ -91,40 +162,40 @@ public class Rock extends AbstractGameObject
 	}
 	
 	/**
-	 * Draws the rocks in three steps, first draws the left edge
-	 * then the middle of the rock up to n amount of rocks, and 
-	 * finishes by drawing the right edge.
+	 * Adds the rock in three steps, first the left edge then the
+	 * middle of the rock up to n amount of rocks, and finishes with
+	 * the right edge. The images are placed at the rock's base height
+	 * in its phase, the floating motion is added when they are drawn.
 	 */
 	@Override
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
 		TextureRegion reg = null;
 		
 		float relX = 0;
-		float relY = 0;
 		
-		//Draw left edge
+		state.beginObject();
+		state.setFloatPhase(floatPhase);
+		
+		//Add left edge
 		reg = regEdge;
 		relX -= dimension.x/4;
-		batch.draw(reg.getTexture(), position.x + relX, position.y + relY, origin.x, origin.y,
-				dimension.x/4, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
-				reg.getRegionWidth(), reg.getRegionHeight(), false, false);
+		state.add(reg, position.x + relX, floatBaseHeight, origin.x, origin.y,
+				dimension.x/4, dimension.y, scale.x, scale.y, rotation, false);
 		
-		//Draw middle
+		//Add middle
 		relX = 0;
 		reg = regMiddle;
-		for(int i =0; i < length; i++)
+		for(int i = 0; i < length; i++)
 		{
-			batch.draw(reg.getTexture(), position.x + relX, position.y + relY, origin.x, origin.y,
-					dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
-					reg.getRegionWidth(), reg.getRegionHeight(), false, false);
+			state.add(reg, position.x + relX, floatBaseHeight, origin.x, origin.y,
+					dimension.x, dimension.y, scale.x, scale.y, rotation, false);
 			relX += dimension.x;
 		}
 		
-		//Draw right edge
+		//Add right edge
 		reg = regEdge;
-		batch.draw(reg.getTexture(), position.x + relX, position.y + relY, origin.x + dimension.x / 8,
-				origin.y, dimension.x / 4, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(),
-				reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), true, false);
+		state.add(reg, position.x + relX, floatBaseHeight, origin.x + dimension.x / 8,
+				origin.y, dimension.x / 4, dimension.y, scale.x, scale.y, rotation, true);
 	}
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package objects;
 /**
  * @author Jason LoBianco
  */
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 public class WaterOverlay extends AbstractGameObject
@@ -31,13 +30,12 @@ public class WaterOverlay extends AbstractGameObject
 	 * draws the waterOverlay across the whole map
 	 */
 	@Override
-	public void render(SpriteBatch batch)
+	public void render(RenderState state)
 	{
 		TextureRegion reg = null;
 		reg = regWaterOverlay;
-		batch.draw(reg.getTexture(), position.x + origin.x, position.y + origin.y,
+		state.add(reg, position.x + origin.x, position.y + origin.y,
 				origin.x, origin.y, dimension.x, dimension.y, scale.x, scale.y, rotation,
-				reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(),
-				false, false);
+				false);
 	}
 }
\ No newline at end of file
@@ -22,6 +22,9 @@ public class GamePreferences
 	public float volMusic;
 	public int charSkin;
 	public boolean showFpsCounter;
+	public boolean dynamicResolution;
+	public int quality;
+	public boolean autoQuality;
 	
 	private Preferences prefs;
 	
@@ -42,6 +45,10 @@ public class GamePreferences
 		volMusic = MathUtils.clamp(prefs.getFloat("volMusic", 0.5f), 0.0f, 1.0f);
 		charSkin = MathUtils.clamp(prefs.getInteger("charSkin", 0), 0, 2);
 		showFpsCounter = prefs.getBoolean("showFpsCounter", false);
+		dynamicResolution = prefs.getBoolean("dynamicResolution", false);
+		quality = MathUtils.clamp(prefs.getInteger("quality", QualityPreset.HIGH.ordinal()),
+				0, QualityPreset.values().length - 1);
+		autoQuality = prefs.getBoolean("autoQuality", true);
 	}
 	
 	/**
@@ -55,6 +62,9 @@ public class GamePreferences
 		prefs.putFloat("volMusic", volMusic);
 		prefs.putInteger("charSkin", charSkin);
 		prefs.putBoolean("showFpsCounter", showFpsCounter);
+		prefs.putBoolean("dynamicResolution", dynamicResolution);
+		prefs.putInteger("quality", quality);
+		prefs.putBoolean("autoQuality", autoQuality);
 		prefs.flush();
 	}
 }
@@ -3,7 +3,14 @@ package screens;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+import com.lobiancogdx.game.Constants;
 
+import objects.AudioManager;
+import objects.RenderState;
+import world.QualityTuner;
 import world.WorldController;
 import world.WorldRenderer;
 
@@ -15,21 +22,56 @@ public class GameScreen extends AbstractGameScreen
 	private WorldRenderer worldRenderer;
 	
 	private boolean paused;
+	//seed of the endless mode, or null when playing the campaign
+	private Long endlessSeed;
+	
+	//the game world as it was at the end of the last frame and the
+	//one the simulation writes next
+	private final RenderState[] renderStates = { new RenderState(), new RenderState() };
+	private int frontState;
+	//simulates the next frame while the last one is drawn, or null to
+	//simulate and draw one after the other
+	private AsyncExecutor simulation;
+	//lowers or raises the quality preset as the frame times demand
+	private final QualityTuner qualityTuner = new QualityTuner();
 	
 	public GameScreen(Game game)
+	{
+		this(game, null);
+	}
+	
+	public GameScreen(Game game, Long endlessSeed)
 	{
 		super(game);
+		this.endlessSeed = endlessSeed;
 	}
 	
 	@Override
-	public void render(float deltaTime)
+	public void render(final float deltaTime)
 	{
-		//Do not update game world when paused.
-		if(!paused)
+		RenderState drawn = renderStates[frontState];
+		final RenderState next = renderStates[1 - frontState];
+		if(!paused) worldRenderer.update(deltaTime);
+		//the input is read here, the simulation may run on another thread
+		final int keys = worldController.sampleKeys();
+		AsyncResult<Void> simulating = null;
+		if(simulation != null)
 		{
-			//Update game world by the time that has passed
-			//since last rendered frame.
-			worldController.update(deltaTime);
+			//simulate on the worker thread while the last frame is drawn
+			simulating = simulation.submit(new AsyncTask<Void>()
+			{
+				@Override
+				public Void call() throws Exception
+				{
+					simulate(deltaTime, keys, next);
+					return null;
+				}
+			});
+		}
+		else
+		{
+			simulate(deltaTime, keys, next);
+			drawn = next;
 		}
 		
 		//Sets the clear screen color to: Cornflower Blue
@@ -37,7 +79,45 @@ public class GameScreen extends AbstractGameScreen
 		//Clears the screen
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 		//Render the game world to screen
-		worldRenderer.render();
+		worldRenderer.render(drawn);
+		
+		//input and the other events of the screen are handled between
+		//frames, so they must not find the world in the middle of a tick
+		if(simulating != null) simulating.get();
+		frontState = 1 - frontState;
+		//the sounds and the physics world are only touched on this
+		//thread, once the simulation is done
+		AudioManager.instance.playQueued();
+		worldRenderer.renderDebug();
+		
+		//the simulation reads the quality preset, so it is only
+		//changed here, while the world is not being simulated
+		if(paused || drawn.loading)
+		{
+			qualityTuner.reset();
+		}
+		else
+		{
+			qualityTuner.update(Gdx.graphics.getRawDeltaTime());
+		}
+	}
+	
+	/**
+	 * advances the game world and writes what is drawn of it next
+	 * @param deltaTime
+	 * @param keys
+	 * @param state
+	 */
+	private void simulate(float deltaTime, int keys, RenderState state)
+	{
+		//Do not update game world when paused.
+		if(!paused)
+		{
+			//Update game world by the time that has passed
+			//since last rendered frame.
+			worldController.update(deltaTime, keys);
+		}
+		worldController.writeRenderState(state);
 	}
 	
 	@Override
@@ -50,8 +130,14 @@ public class GameScreen extends AbstractGameScreen
 	public void show()
 	{
 		GamePreferences.instance.load();
-		worldController = new WorldController(game);
+		worldController = new WorldController(game, endlessSeed);
 		worldRenderer = new WorldRenderer(worldController);
+		worldController.writeRenderState(renderStates[frontState]);
+		//a second core takes over the simulation
+		if(Constants.PIPELINED_FRAMES && Runtime.getRuntime().availableProcessors() > 1)
+		{
+			simulation = new AsyncExecutor(1);
+		}
 		Gdx.input.setCatchBackKey(true);
 	}
 	
@@ -59,6 +145,7 @@ public class GameScreen extends AbstractGameScreen
 	public void hide()
 	{
 		Gdx.app.postRunnable(() -> {
+			if(simulation != null) simulation.dispose();
 			worldController.dispose();
 			worldRenderer.dispose();
 			Gdx.input.setCatchBackKey(false);
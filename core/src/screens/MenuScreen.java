@@ -49,6 +49,7 @@ public class MenuScreen extends AbstractGameScreen
 	private Image imgBunny;
 	private Button btnMenuPlay;
 	private Button btnMenuOptions;
+	private TextButton btnMenuEndless;
 	
 	//options
 	private Window winOptions;
@@ -61,6 +62,9 @@ public class MenuScreen extends AbstractGameScreen
 	private SelectBox<CharacterSkin> selCharSkin;
 	private Image imgCharSkin;
 	private CheckBox chkShowFpsCounter;
+	private CheckBox chkDynamicResolution;
+	private SelectBox<QualityPreset> selQuality;
+	private CheckBox chkAutoQuality;
 	
 	//debug
 	private final float DEBUG_REBUILD_INTERVAL = 5.0f;
@@ -205,6 +209,18 @@ public class MenuScreen extends AbstractGameScreen
 				onOptionsClicked();
 			}
 		});
+		layer.row();
+		// + Endless Button
+		btnMenuEndless = new TextButton("Endless", skinLibgdx);
+		layer.add(btnMenuEndless);
+		btnMenuEndless.addListener(new ChangeListener()
+		{
+			@Override
+			public void changed(ChangeEvent event, Actor actor) 
+			{
+				onEndlessClicked();
+			}
+		});
 		if(debugEnabled)
 		{
 			layer.debug();
@@ -291,6 +307,22 @@ public class MenuScreen extends AbstractGameScreen
 		tbl.add(new Label("Show FPS Counter", skinLibgdx));
 		tbl.add(chkShowFpsCounter);
 		tbl.row();
+		// + Checkbox, "Dynamic Resolution" label
+		chkDynamicResolution = new CheckBox("", skinLibgdx);
+		tbl.add(new Label("Dynamic Resolution", skinLibgdx));
+		tbl.add(chkDynamicResolution);
+		tbl.row();
+		// + Drop down box filled with the quality presets, "Quality" label
+		selQuality = new SelectBox<QualityPreset>(skinLibgdx);
+		selQuality.setItems(QualityPreset.values());
+		tbl.add(new Label("Quality", skinLibgdx));
+		tbl.add(selQuality).width(120);
+		tbl.row();
+		// + Checkbox, "Auto Quality" label
+		chkAutoQuality = new CheckBox("", skinLibgdx);
+		tbl.add(new Label("Auto Quality", skinLibgdx));
+		tbl.add(chkAutoQuality);
+		tbl.row();
 		return tbl;
 	}
 	
@@ -379,6 +411,14 @@ public class MenuScreen extends AbstractGameScreen
 		game.setScreen(new GameScreen(game));
 	}
 	
+	/**
+	 * sets game to the game screen in endless mode
+	 */
+	private void onEndlessClicked()
+	{
+		game.setScreen(new GameScreen(game, Constants.ENDLESS_SEED));
+	}
+	
 	/**
 	 * opens the options menu on click
 	 */
@@ -403,6 +443,9 @@ public class MenuScreen extends AbstractGameScreen
 		selCharSkin.setSelectedIndex(prefs.charSkin);
 		onCharSkinSelected(prefs.charSkin);
 		chkShowFpsCounter.setChecked(prefs.showFpsCounter);
+		chkDynamicResolution.setChecked(prefs.dynamicResolution);
+		selQuality.setSelectedIndex(prefs.quality);
+		chkAutoQuality.setChecked(prefs.autoQuality);
 	}
 	
 	/**
@@ -417,6 +460,9 @@ public class MenuScreen extends AbstractGameScreen
 		prefs.volMusic = sldMusic.getValue();
 		prefs.charSkin = selCharSkin.getSelectedIndex();
 		prefs.showFpsCounter = chkShowFpsCounter.isChecked();
+		prefs.dynamicResolution = chkDynamicResolution.isChecked();
+		prefs.quality = selQuality.getSelectedIndex();
+		prefs.autoQuality = chkAutoQuality.isChecked();
 		prefs.save();
 	}
 	
@@ -467,17 +513,21 @@ public class MenuScreen extends AbstractGameScreen
 		btnMenuOptions.addAction(sequence(
 				delay(delayOptionsButton),
 				moveBy(moveX, moveY, moveDuration, moveEasing)));
+		btnMenuEndless.addAction(sequence(
+				delay(2 * delayOptionsButton),
+				moveBy(moveX, moveY, moveDuration, moveEasing)));
 		
 		SequenceAction seq = sequence();
 		if(visible)
 		{
-			seq.addAction(delay(delayOptionsButton + moveDuration));
+			seq.addAction(delay(2 * delayOptionsButton + moveDuration));
 			seq.addAction(run(new Runnable()
 			{
 				public void run()
 				{
 					btnMenuPlay.setTouchable(touchEnabled);
 					btnMenuOptions.setTouchable(touchEnabled);
+					btnMenuEndless.setTouchable(touchEnabled);
 				}
 			}));
 		}
@@ -0,0 +1,100 @@
+package screens;
+
+import com.lobiancogdx.game.Constants;
+
+/**
+ * The QualityPreset class is responsible for holding the selectable
+ * levels of detail of the decorations and effects. None of them change
+ * how the game plays.
+ * @author Jason LoBianco
+ */
+public enum QualityPreset
+{
+	LOW("Low", 3, 1, false, false, 0.25f),
+	MEDIUM("Medium", 2, 2, true, false, 0.5f),
+	HIGH("High", 1, 3, true, true, 1.0f);
+	
+	private String name;
+	private int cloudSpacing;
+	private int mountainLayers;
+	private boolean waterOverlay;
+	private boolean dust;
+	private float carrotFraction;
+	
+	private QualityPreset(String name, int cloudSpacing, int mountainLayers, boolean waterOverlay,
+			boolean dust, float carrotFraction)
+	{
+		this.name = name;
+		this.cloudSpacing = cloudSpacing;
+		this.mountainLayers = mountainLayers;
+		this.waterOverlay = waterOverlay;
+		this.dust = dust;
+		this.carrotFraction = carrotFraction;
+	}
+	
+	/**
+	 * returns the preset that is set in the preferences
+	 * @return
+	 */
+	public static QualityPreset current()
+	{
+		return values()[GamePreferences.instance.quality];
+	}
+	
+	/**
+	 * returns the name of the preset
+	 */
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+	
+	/**
+	 * returns the spacing of the drawn clouds, every 1st, 2nd or
+	 * 3rd cloud is drawn
+	 * @return
+	 */
+	public int getCloudSpacing()
+	{
+		return cloudSpacing;
+	}
+	
+	/**
+	 * returns the number of mountain layers that are drawn, 1 to 3
+	 * @return
+	 */
+	public int getMountainLayers()
+	{
+		return mountainLayers;
+	}
+	
+	/**
+	 * returns whether the water overlay is drawn
+	 * @return
+	 */
+	public boolean hasWaterOverlay()
+	{
+		return waterOverlay;
+	}
+	
+	/**
+	 * returns whether the dust of the bunny head is drawn
+	 * @return
+	 */
+	public boolean hasDust()
+	{
+		return dust;
+	}
+	
+	/**
+	 * returns the number of the carrots that rain down at the goal
+	 * which are drawn. All of them are simulated, so the simulation
+	 * plays out the same on every preset.
+	 * @return
+	 */
+	public int getNumCarrots()
+	{
+		return Math.max(1, (int) (Constants.CARROTS_SPAWN_MAX * carrotFraction));
+	}
+}
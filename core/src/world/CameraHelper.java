@@ -2,9 +2,11 @@ package world;
 
 import objects.AbstractGameObject;
 
-import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.lobiancogdx.game.Constants;
 
 /**
  * 
@@ -21,17 +23,23 @@ public class CameraHelper
 	private final float FOLLOW_SPEED = 4.0f;
 	
 	private Vector2 position;
+	//position at the previous tick and in between two ticks
+	private Vector2 lastPosition;
+	private Vector2 renderPosition;
 	private float zoom;
 	private AbstractGameObject target;
 	
 	public CameraHelper()
 	{
 		position = new Vector2();
+		lastPosition = new Vector2();
+		renderPosition = new Vector2();
 		zoom = 1.0f;
 	}
 	
 	public void update(float deltaTime)
 	{
+		lastPosition.set(position);
 		if (!hasTarget()) return;
 		
 		position.x = target.position.x + target.origin.x;
@@ -43,9 +51,26 @@ public class CameraHelper
 		position.y = Math.max(-1f, position.y);
 	}
 	
+	/**
+	 * moves the camera at once, without interpolating from where it was
+	 * @param x
+	 * @param y
+	 */
 	public void setPosition(float x, float y)
 	{
 		this.position.set(x,y);
+		this.lastPosition.set(x, y);
+	}
+	
+	/**
+	 * moves the camera along with the origin of the world, which is
+	 * moved dx to the right
+	 * @param dx
+	 */
+	public void shiftOrigin(float dx)
+	{
+		position.x -= dx;
+		lastPosition.x -= dx;
 	}
 	
 	public Vector2 getPosition()
@@ -68,6 +93,27 @@ public class CameraHelper
 		return zoom;
 	}
 	
+	/**
+	 * returns the width of the visible part of the world, taking
+	 * the screen's aspect ratio and the zoom into account
+	 * @return
+	 */
+	public float getViewportWidth()
+	{
+		int height = Gdx.graphics.getHeight();
+		float aspectRatio = height > 0 ? (float)Gdx.graphics.getWidth() / height : 1;
+		return Constants.VIEWPORT_HEIGHT * aspectRatio * zoom;
+	}
+	
+	/**
+	 * returns the height of the visible part of the world
+	 * @return
+	 */
+	public float getViewportHeight()
+	{
+		return Constants.VIEWPORT_HEIGHT * zoom;
+	}
+	
 	public void setTarget(AbstractGameObject target)
 	{
 		this.target = target;
@@ -88,11 +134,30 @@ public class CameraHelper
 		return hasTarget() && this.target.equals(target);
 	}
 	
-	public void applyTo(OrthographicCamera camera)
+	/**
+	 * returns the position of the camera in between the previous and
+	 * the current tick of the simulation
+	 * @param alpha 0 for the previous tick, 1 for the current one
+	 * @return
+	 */
+	public Vector2 getRenderPosition(float alpha)
+	{
+		return renderPosition.set(lastPosition).lerp(position, alpha);
+	}
+	
+	/**
+	 * returns the part of the world the camera sees in between the
+	 * previous and the current tick, taking the zoom into account
+	 * @param alpha 0 for the previous tick, 1 for the current one
+	 * @param out
+	 * @return out
+	 */
+	public Rectangle getVisibleArea(float alpha, Rectangle out)
 	{
-		camera.position.x = position.x;
-		camera.position.y = position.y;
-		camera.zoom = zoom;
-		camera.update();
+		getRenderPosition(alpha);
+		float width = getViewportWidth();
+		float height = getViewportHeight();
+		return out.set(renderPosition.x - width / 2, renderPosition.y - height / 2, width, height);
 	}
+
 }
\ No newline at end of file
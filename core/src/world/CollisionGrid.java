@@ -0,0 +1,240 @@
+package world;
+
+import objects.AbstractGameObject;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * The CollisionGrid class is a uniform grid over the level that finds
+ * the game objects near a rectangle without testing all of them. An
+ * object is listed in every cell its bounds overlap. Queries return the
+ * objects in the order they were added, so collisions are handled in
+ * the same order as when iterating over the level's object lists.
+ * @author Jason LoBianco
+ */
+public class CollisionGrid<T extends AbstractGameObject>
+{
+	/**
+	 * An object in the grid and the range of cells it is listed in.
+	 */
+	private static class Entry<T>
+	{
+		private T object;
+		//order in which the objects were added
+		private int order;
+		private int minX;
+		private int minY;
+		private int maxX;
+		private int maxY;
+		//last query that found this entry
+		private int queryStamp;
+	}
+
+	private final float cellSize;
+	//cells by packed cell coordinates, empty cells are removed
+	private final LongMap<Array<Entry<T>>> cells = new LongMap<Array<Entry<T>>>();
+	private final ObjectMap<T, Entry<T>> entries = new ObjectMap<T, Entry<T>>();
+	private int nextOrder;
+	private int queryStamp;
+
+	private final Pool<Entry<T>> entryPool = new Pool<Entry<T>>()
+	{
+		@Override
+		protected Entry<T> newObject()
+		{
+			return new Entry<T>();
+		}
+	};
+	private final Array<Array<Entry<T>>> freeCells = new Array<Array<Entry<T>>>();
+	private final Array<Entry<T>> found = new Array<Entry<T>>();
+
+	public CollisionGrid(float cellSize)
+	{
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * adds an object, does nothing if it is already in the grid
+	 * @param object
+	 */
+	public void add(T object)
+	{
+		if(entries.containsKey(object)) return;
+		Entry<T> entry = entryPool.obtain();
+		entry.object = object;
+		entry.order = nextOrder++;
+		entry.queryStamp = queryStamp;
+		setCells(entry);
+		insert(entry);
+		entries.put(object, entry);
+	}
+
+	/**
+	 * removes an object, does nothing if it is not in the grid
+	 * @param object
+	 */
+	public void remove(T object)
+	{
+		Entry<T> entry = entries.remove(object);
+		if(entry == null) return;
+		erase(entry);
+		entry.object = null;
+		entryPool.free(entry);
+	}
+
+	/**
+	 * moves an object to the cells of its current bounds
+	 * @param object
+	 */
+	public void update(T object)
+	{
+		Entry<T> entry = entries.get(object);
+		if(entry == null) return;
+		int minX = getCell(object.position.x);
+		int minY = getCell(object.position.y);
+		int maxX = getCell(object.position.x + object.bounds.width);
+		int maxY = getCell(object.position.y + object.bounds.height);
+		if(entry.minX == minX && entry.minY == minY && entry.maxX == maxX && entry.maxY == maxY) return;
+		erase(entry);
+		entry.minX = minX;
+		entry.minY = minY;
+		entry.maxX = maxX;
+		entry.maxY = maxY;
+		insert(entry);
+	}
+
+	/**
+	 * finds the objects whose cells overlap a rectangle. They are
+	 * candidates only, the caller still has to test for overlap.
+	 * @param rect
+	 * @param out cleared and filled with the objects in the order
+	 * they were added
+	 * @return out
+	 */
+	public Array<T> query(Rectangle rect, Array<T> out)
+	{
+		out.clear();
+		found.clear();
+		queryStamp++;
+		int minX = getCell(rect.x);
+		int minY = getCell(rect.y);
+		int maxX = getCell(rect.x + rect.width);
+		int maxY = getCell(rect.y + rect.height);
+		for(int x = minX; x <= maxX; x++)
+		{
+			for(int y = minY; y <= maxY; y++)
+			{
+				Array<Entry<T>> cell = cells.get(getKey(x, y));
+				if(cell == null) continue;
+				for(int i = 0; i < cell.size; i++)
+				{
+					Entry<T> entry = cell.get(i);
+					if(entry.queryStamp == queryStamp) continue;
+					entry.queryStamp = queryStamp;
+					found.add(entry);
+				}
+			}
+		}
+
+		//insertion sort, there are only a few candidates
+		for(int i = 1; i < found.size; i++)
+		{
+			Entry<T> entry = found.get(i);
+			int j = i - 1;
+			while(j >= 0 && found.get(j).order > entry.order)
+			{
+				found.set(j + 1, found.get(j));
+				j--;
+			}
+			found.set(j + 1, entry);
+		}
+		for(int i = 0; i < found.size; i++)
+		{
+			out.add(found.get(i).object);
+		}
+		found.clear();
+		return out;
+	}
+
+	/**
+	 * returns the number of objects in the grid
+	 * @return
+	 */
+	public int size()
+	{
+		return entries.size;
+	}
+
+	/**
+	 * sets the range of cells covered by the bounds of an entry's object
+	 * @param entry
+	 */
+	private void setCells(Entry<T> entry)
+	{
+		T object = entry.object;
+		entry.minX = getCell(object.position.x);
+		entry.minY = getCell(object.position.y);
+		entry.maxX = getCell(object.position.x + object.bounds.width);
+		entry.maxY = getCell(object.position.y + object.bounds.height);
+	}
+
+	/**
+	 * lists an entry in its cells
+	 * @param entry
+	 */
+	private void insert(Entry<T> entry)
+	{
+		for(int x = entry.minX; x <= entry.maxX; x++)
+		{
+			for(int y = entry.minY; y <= entry.maxY; y++)
+			{
+				long key = getKey(x, y);
+				Array<Entry<T>> cell = cells.get(key);
+				if(cell == null)
+				{
+					cell = freeCells.size > 0 ? freeCells.pop() : new Array<Entry<T>>(false, 4);
+					cells.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * removes an entry from its cells
+	 * @param entry
+	 */
+	private void erase(Entry<T> entry)
+	{
+		for(int x = entry.minX; x <= entry.maxX; x++)
+		{
+			for(int y = entry.minY; y <= entry.maxY; y++)
+			{
+				long key = getKey(x, y);
+				Array<Entry<T>> cell = cells.get(key);
+				if(cell == null) continue;
+				cell.removeValue(entry, true);
+				if(cell.size == 0)
+				{
+					cells.remove(key);
+					freeCells.add(cell);
+				}
+			}
+		}
+	}
+
+	private int getCell(float coordinate)
+	{
+		return MathUtils.floor(coordinate / cellSize);
+	}
+
+	private static long getKey(int x, int y)
+	{
+		return (long)x << 32 | (y & 0xffffffffL);
+	}
+}
@@ -0,0 +1,158 @@
+package world;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.lobiancogdx.game.Constants;
+
+/**
+ * The DynamicResolution class draws a pass into an offscreen frame
+ * buffer at a fraction of the screen's resolution and scales it up onto
+ * the screen. The fraction follows the measured frame time: it drops
+ * when frames take longer than the target and slowly climbs back when
+ * they keep up with it, within the bounds in Constants.
+ *
+ * The frame buffer is created once at the largest scale; smaller scales
+ * only draw into a corner of it, so changing the scale costs nothing.
+ * @author Jason LoBianco
+ */
+public class DynamicResolution implements Disposable
+{
+	//change of the scale per step
+	private static final float SCALE_STEP = 0.05f;
+	//weight of a new frame time in the running average
+	private static final float SMOOTHING = 0.1f;
+	//frames that must keep up with the target before the scale is
+	//raised, so it doesn't flip back and forth at the edge
+	private static final int FRAMES_BEFORE_RAISE = 60;
+	//frames the running average is given to settle after a step
+	private static final int FRAMES_AFTER_STEP = 15;
+
+	private FrameBuffer frameBuffer;
+	private float scale = Constants.RESOLUTION_SCALE_MAX;
+	private float averageFrameTime = Constants.TARGET_FRAME_TIME;
+	private int goodFrames;
+	private int settleFrames;
+
+	//size of the screen and of the part of the frame buffer drawn into
+	private int screenWidth;
+	private int screenHeight;
+	private int width;
+	private int height;
+	private final Matrix4 screenProjection = new Matrix4();
+
+	/**
+	 * returns the fraction of the screen's resolution that is drawn at
+	 * @return
+	 */
+	public float getScale()
+	{
+		return scale;
+	}
+
+	/**
+	 * adjusts the scale to the time the last frame took
+	 * @param frameTime in seconds
+	 */
+	public void update(float frameTime)
+	{
+		float target = Constants.TARGET_FRAME_TIME;
+		//a single hitch, like the first frame after loading, must not
+		//drag the average down for long
+		frameTime = Math.min(frameTime, target * 4);
+		averageFrameTime += (frameTime - averageFrameTime) * SMOOTHING;
+		if(settleFrames > 0)
+		{
+			settleFrames--;
+			return;
+		}
+		//with vsync a frame that keeps up takes just about the target,
+		//so allow for a little jitter above it
+		if(averageFrameTime > target * 1.2f)
+		{
+			setScale(scale - SCALE_STEP);
+			goodFrames = 0;
+		}
+		else if(averageFrameTime < target * 1.05f)
+		{
+			if(++goodFrames >= FRAMES_BEFORE_RAISE)
+			{
+				setScale(scale + SCALE_STEP);
+				goodFrames = 0;
+			}
+		}
+		else
+		{
+			goodFrames = 0;
+		}
+	}
+
+	private void setScale(float newScale)
+	{
+		newScale = MathUtils.clamp(newScale, Constants.RESOLUTION_SCALE_MIN, Constants.RESOLUTION_SCALE_MAX);
+		if(newScale == scale) return;
+		scale = newScale;
+		settleFrames = FRAMES_AFTER_STEP;
+	}
+
+	/**
+	 * starts drawing into the frame buffer at the current scale and
+	 * clears it with the clear color of the screen
+	 */
+	public void begin()
+	{
+		int backBufferWidth = Gdx.graphics.getBackBufferWidth();
+		int backBufferHeight = Gdx.graphics.getBackBufferHeight();
+		if(frameBuffer == null || backBufferWidth != screenWidth || backBufferHeight != screenHeight)
+		{
+			if(frameBuffer != null) frameBuffer.dispose();
+			screenWidth = backBufferWidth;
+			screenHeight = backBufferHeight;
+			frameBuffer = new FrameBuffer(Pixmap.Format.RGB888,
+					Math.max(1, MathUtils.ceil(screenWidth * Constants.RESOLUTION_SCALE_MAX)),
+					Math.max(1, MathUtils.ceil(screenHeight * Constants.RESOLUTION_SCALE_MAX)), false);
+			frameBuffer.getColorBufferTexture().setFilter(TextureFilter.Linear, TextureFilter.Linear);
+			screenProjection.setToOrtho2D(0, 0, screenWidth, screenHeight);
+		}
+		width = Math.max(1, Math.min(frameBuffer.getWidth(), MathUtils.round(screenWidth * scale)));
+		height = Math.max(1, Math.min(frameBuffer.getHeight(), MathUtils.round(screenHeight * scale)));
+		frameBuffer.begin();
+		Gdx.gl.glViewport(0, 0, width, height);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+	}
+
+	/**
+	 * ends drawing into the frame buffer and draws what was drawn into
+	 * it over the whole screen. Must be called outside of the batch's
+	 * begin() and end().
+	 * @param batch
+	 */
+	public void end(SpriteBatch batch)
+	{
+		//also sets the viewport back to the whole screen
+		frameBuffer.end();
+		Texture texture = frameBuffer.getColorBufferTexture();
+		batch.setProjectionMatrix(screenProjection);
+		//the frame buffer is opaque, blending it would only cost time
+		batch.disableBlending();
+		batch.begin();
+		//the image of a frame buffer is upside down
+		batch.draw(texture, 0, 0, screenWidth, screenHeight, 0, 0, width, height, false, true);
+		batch.end();
+		batch.enableBlending();
+	}
+
+	@Override
+	public void dispose()
+	{
+		if(frameBuffer != null) frameBuffer.dispose();
+		frameBuffer = null;
+	}
+}
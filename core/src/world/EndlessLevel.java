@@ -0,0 +1,353 @@
+package world;
+
+import java.util.Random;
+
+import objects.BunnyHead;
+import objects.Clouds;
+import objects.Feather;
+import objects.Goal;
+import objects.GoldCoin;
+import objects.Mountains;
+import objects.Rock;
+import objects.WaterOverlay;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Pool.Poolable;
+import com.lobiancogdx.game.Constants;
+
+/**
+ * The EndlessLevel class is a level without an end. Its chunks are made
+ * by a LevelGenerator as the camera gets close to them, and the objects
+ * of chunks that fall behind are recycled through the level's pools into
+ * the chunks ahead. The decoration follows the camera, so memory and the
+ * work per frame stay the same no matter how far the player runs.
+ * @author Jason LoBianco
+ */
+public class EndlessLevel extends Level
+{
+	public static final String TAG = EndlessLevel.class.getName();
+
+	//bit of the first feather in a chunk's collected items
+	private static final int FEATHER_BIT = LevelGenerator.MAX_GOLD_COINS;
+
+	/**
+	 * The objects created for one resident chunk.
+	 * @author Jason LoBianco
+	 */
+	private static class Chunk implements Poolable
+	{
+		private final Array<Rock> rocks = new Array<Rock>(false, 8);
+		private final Array<GoldCoin> goldCoins = new Array<GoldCoin>(false, LevelGenerator.MAX_GOLD_COINS);
+		//index of each gold coin within the chunk
+		private final IntArray goldCoinIndices = new IntArray(false, LevelGenerator.MAX_GOLD_COINS);
+		private final Array<Feather> feathers = new Array<Feather>(false, LevelGenerator.MAX_FEATHERS);
+		private final IntArray featherIndices = new IntArray(false, LevelGenerator.MAX_FEATHERS);
+
+		@Override
+		public void reset()
+		{
+			rocks.clear();
+			goldCoins.clear();
+			goldCoinIndices.clear();
+			feathers.clear();
+			featherIndices.clear();
+		}
+	}
+
+	private final LevelGenerator generator;
+	//records of the chunk that is being loaded
+	private final LevelData.Builder chunkData = new LevelData.Builder();
+
+	//range of resident chunks, empty while lastChunk < firstChunk
+	private int firstChunk;
+	private int lastChunk;
+	private final IntMap<Chunk> residentChunks = new IntMap<Chunk>();
+	private final Pool<Chunk> chunkPool = new Pool<Chunk>()
+	{
+		@Override
+		protected Chunk newObject()
+		{
+			return new Chunk();
+		}
+	};
+
+	//collected items of the most recently evicted chunks, one bit per
+	//item, in a ring indexed by chunk
+	private final int[] rememberedChunks = new int[Constants.ENDLESS_CHUNKS_REMEMBERED];
+	private final long[] collectedItems = new long[Constants.ENDLESS_CHUNKS_REMEMBERED];
+
+	//chunk that holds the next goal
+	private int goalChunk;
+
+	/**
+	 * creates the start of an endless level. Like Level(LevelData) this
+	 * does not touch OpenGL, so it may run on a worker thread.
+	 * @param generator
+	 * @param random generator of the simulation, the decoration takes
+	 * its random numbers from it
+	 */
+	public EndlessLevel(LevelGenerator generator, Random random)
+	{
+		this.generator = generator;
+		init(random);
+	}
+
+	private void init(Random random)
+	{
+		initObjects();
+		firstChunk = 0;
+		lastChunk = -1;
+		for(int i = 0; i < rememberedChunks.length; i++)
+		{
+			rememberedChunks[i] = -1;
+		}
+
+		//player character
+		generator.generate(0, chunkData);
+		bunnyHead = (BunnyHead)BLOCK_TYPE.PLAYER_SPAWNPOINT.create(toWorldX(chunkData.spawnX),
+				getBaseHeight(chunkData.spawnY));
+
+		//goal
+		goal = (Goal)BLOCK_TYPE.GOAL.newObject();
+		goalChunk = -1;
+		advanceGoal();
+
+		//decoration covers the resident chunks around the camera
+		int width = (Constants.LEVEL_CHUNKS_BEHIND + Constants.LEVEL_CHUNKS_AHEAD + 1)
+				* Constants.LEVEL_CHUNK_WIDTH;
+		clouds = new Clouds(width, random);
+		clouds.position.set(0, 2);
+		mountains = new Mountains(width, true);
+		mountains.position.set(-1, -1);
+		waterOverlay = new WaterOverlay(width);
+		waterOverlay.position.set(0, -3.75f);
+
+		//load the chunks around the spawn point
+		updateChunks(bunnyHead.position.x, bunnyHead.position.x);
+		Gdx.app.debug(TAG, "endless level with seed " + generator.getSeed() + " created");
+	}
+
+	/**
+	 * returns the height of a pixel row of the generated chunks
+	 * measured from the bottom
+	 * @param pixelY
+	 * @return
+	 */
+	private float getBaseHeight(int pixelY)
+	{
+		return LevelGenerator.HEIGHT - pixelY;
+	}
+
+	/**
+	 * generates the chunks around the visible columns and recycles the
+	 * chunks that are out of range. The decoration is moved along with
+	 * the visible columns.
+	 * @param left
+	 * @param right
+	 */
+	@Override
+	public void updateChunks(float left, float right)
+	{
+		int chunkWidth = Constants.LEVEL_CHUNK_WIDTH;
+		int first = Math.max(0, MathUtils.floor((left + originColumn) / chunkWidth) - Constants.LEVEL_CHUNKS_BEHIND);
+		int last = Math.max(0, MathUtils.floor((right + originColumn) / chunkWidth) + Constants.LEVEL_CHUNKS_AHEAD);
+		setResidentChunks(first, last);
+
+		float center = (left + right) / 2.0f;
+		waterOverlay.position.x = center;
+		clouds.position.x = toWorldX(first * chunkWidth);
+	}
+
+	/**
+	 * makes the chunks first to last resident and recycles all others
+	 * @param first
+	 * @param last
+	 */
+	private void setResidentChunks(int first, int last)
+	{
+		if(first == firstChunk && last == lastChunk) return;
+
+		//unload first, so the objects of old chunks are
+		//recycled into the new ones
+		for(int chunk = firstChunk; chunk <= lastChunk; chunk++)
+		{
+			if(chunk < first || chunk > last) unloadChunk(chunk);
+		}
+		for(int chunk = first; chunk <= last; chunk++)
+		{
+			if(chunk < firstChunk || chunk > lastChunk) loadChunk(chunk);
+		}
+		firstChunk = first;
+		lastChunk = last;
+	}
+
+	/**
+	 * generates a chunk and creates its objects from the pools
+	 * @param index
+	 */
+	private void loadChunk(int index)
+	{
+		generator.generate(index, chunkData);
+		Chunk chunk = chunkPool.obtain();
+		long collected = getCollectedItems(index);
+
+		for(int i = 0; i < chunkData.rocks.size; i += 3)
+		{
+			Rock rock = rockPool.obtain();
+			BLOCK_TYPE.ROCK.place(rock, toWorldX(chunkData.rocks.get(i)), getBaseHeight(chunkData.rocks.get(i + 1)));
+			rock.setLength(chunkData.rocks.get(i + 2));
+			initFloatPhase(index * Constants.LEVEL_CHUNK_WIDTH + i / 3, rock);
+			chunk.rocks.add(rock);
+			addRock(rock);
+		}
+
+		for(int i = 0; i < chunkData.goldCoins.size; i += 2)
+		{
+			int item = i / 2;
+			if((collected & (1L << item)) != 0) continue;
+			GoldCoin goldCoin = goldCoinPool.obtain();
+			BLOCK_TYPE.ITEM_GOLD_COIN.place(goldCoin, toWorldX(chunkData.goldCoins.get(i)),
+					getBaseHeight(chunkData.goldCoins.get(i + 1)));
+			initAnimationPhase(index * Constants.LEVEL_CHUNK_WIDTH + item, goldCoin);
+			chunk.goldCoins.add(goldCoin);
+			chunk.goldCoinIndices.add(item);
+			addGoldCoin(goldCoin);
+		}
+
+		for(int i = 0; i < chunkData.feathers.size; i += 2)
+		{
+			int item = FEATHER_BIT + i / 2;
+			if((collected & (1L << item)) != 0) continue;
+			Feather feather = featherPool.obtain();
+			BLOCK_TYPE.ITEM_FEATHER.place(feather, toWorldX(chunkData.feathers.get(i)),
+					getBaseHeight(chunkData.feathers.get(i + 1)));
+			chunk.feathers.add(feather);
+			chunk.featherIndices.add(item);
+			addFeather(feather);
+		}
+
+		residentChunks.put(index, chunk);
+	}
+
+	/**
+	 * returns the objects of a chunk to the pools, remembering
+	 * which items have been collected
+	 * @param index
+	 */
+	private void unloadChunk(int index)
+	{
+		Chunk chunk = residentChunks.remove(index);
+		if(chunk == null) return;
+		rememberCollectedItems(index, chunk);
+
+		for(Rock rock : chunk.rocks)
+		{
+			removeRock(rock);
+		}
+		for(GoldCoin goldCoin : chunk.goldCoins)
+		{
+			removeGoldCoin(goldCoin);
+		}
+		for(Feather feather : chunk.feathers)
+		{
+			removeFeather(feather);
+		}
+		chunkPool.free(chunk);
+	}
+
+	/**
+	 * returns the items of a chunk that were collected before it was
+	 * evicted, or none if the chunk has been forgotten since
+	 * @param index
+	 * @return
+	 */
+	private long getCollectedItems(int index)
+	{
+		int slot = index % rememberedChunks.length;
+		return rememberedChunks[slot] == index ? collectedItems[slot] : 0;
+	}
+
+	/**
+	 * stores the collected items of a resident chunk in the ring
+	 * @param index
+	 * @param chunk
+	 */
+	private void rememberCollectedItems(int index, Chunk chunk)
+	{
+		long collected = getCollectedItems(index);
+		for(int i = 0; i < chunk.goldCoins.size; i++)
+		{
+			if(chunk.goldCoins.get(i).collected) collected |= 1L << chunk.goldCoinIndices.get(i);
+		}
+		for(int i = 0; i < chunk.feathers.size; i++)
+		{
+			if(chunk.feathers.get(i).collected) collected |= 1L << chunk.featherIndices.get(i);
+		}
+		int slot = index % rememberedChunks.length;
+		rememberedChunks[slot] = index;
+		collectedItems[slot] = collected;
+	}
+
+	/**
+	 * moves the goal on to the next chunk that ends with one
+	 */
+	@Override
+	public boolean advanceGoal()
+	{
+		do
+		{
+			goalChunk++;
+		}
+		while(!generator.hasGoal(goalChunk));
+		generator.generate(goalChunk, chunkData);
+		BLOCK_TYPE.GOAL.place(goal, toWorldX(chunkData.goalX), getBaseHeight(chunkData.goalY));
+		return true;
+	}
+
+	/**
+	 * captures the resident chunks, the collected items, the next
+	 * goal and the player character.
+	 */
+	@Override
+	public LevelSnapshot snapshot()
+	{
+		LevelSnapshot snapshot = new LevelSnapshot();
+		snapshot.originColumn = originColumn;
+		snapshot.firstChunk = firstChunk;
+		snapshot.lastChunk = lastChunk;
+		snapshot.goalChunk = goalChunk;
+		for(IntMap.Entry<Chunk> entry : residentChunks.entries())
+		{
+			rememberCollectedItems(entry.key, entry.value);
+		}
+		snapshot.rememberedChunks = rememberedChunks.clone();
+		snapshot.collectedItems = collectedItems.clone();
+		snapshot.captureBunny(bunnyHead);
+		return snapshot;
+	}
+
+	/**
+	 * puts the level back into the state of a snapshot. The resident
+	 * chunks are recycled and generated again.
+	 */
+	@Override
+	public void restore(LevelSnapshot snapshot)
+	{
+		freeCarrots();
+		setResidentChunks(0, -1);
+
+		System.arraycopy(snapshot.rememberedChunks, 0, rememberedChunks, 0, rememberedChunks.length);
+		System.arraycopy(snapshot.collectedItems, 0, collectedItems, 0, collectedItems.length);
+		goalChunk = snapshot.goalChunk - 1;
+		advanceGoal();
+
+		setResidentChunks(snapshot.firstChunk, snapshot.lastChunk);
+		snapshot.restoreBunny(bunnyHead);
+		saveState();
+	}
+}
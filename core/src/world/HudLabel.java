@@ -0,0 +1,102 @@
+package world;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * The HudLabel class draws a line of text of the HUD that is made of a
+ * fixed prefix and one or two numbers. The glyphs are laid out into a
+ * font cache only when a number, the position or the color changes, so
+ * drawing an unchanged label only copies its vertices into the batch
+ * and creates no garbage.
+ * @author Jason LoBianco
+ */
+public class HudLabel
+{
+	//second number of a label that shows only one
+	private static final int NONE = Integer.MIN_VALUE;
+
+	private final BitmapFontCache cache;
+	private final String prefix;
+	private final StringBuilder text = new StringBuilder();
+
+	//what the glyphs in the cache were laid out with
+	private boolean valid;
+	private int value;
+	private int max;
+	private float x;
+	private float y;
+	private final Color color = new Color(1, 1, 1, 1);
+
+	/**
+	 * creates a label that shows its numbers after prefix
+	 * @param font
+	 * @param prefix
+	 */
+	public HudLabel(BitmapFont font, String prefix)
+	{
+		cache = new BitmapFontCache(font, font.usesIntegerPositions());
+		this.prefix = prefix;
+	}
+
+	/**
+	 * sets the color of the label
+	 * @param r
+	 * @param g
+	 * @param b
+	 * @param a
+	 */
+	public void setColor(float r, float g, float b, float a)
+	{
+		if(color.r == r && color.g == g && color.b == b && color.a == a) return;
+		color.set(r, g, b, a);
+		//tints the glyphs that are already laid out
+		cache.setColors(color);
+		cache.setColor(color);
+	}
+
+	/**
+	 * draws a number after the prefix
+	 * @param batch
+	 * @param value
+	 * @param x
+	 * @param y
+	 */
+	public void draw(Batch batch, int value, float x, float y)
+	{
+		draw(batch, value, NONE, x, y);
+	}
+
+	/**
+	 * draws a number out of a maximum, "value/max", after the prefix
+	 * @param batch
+	 * @param value
+	 * @param max
+	 * @param x
+	 * @param y
+	 */
+	public void draw(Batch batch, int value, int max, float x, float y)
+	{
+		if(!valid || value != this.value || max != this.max || x != this.x || y != this.y)
+		{
+			text.setLength(0);
+			text.append(prefix);
+			text.append(value);
+			if(max != NONE)
+			{
+				text.append('/');
+				text.append(max);
+			}
+			cache.setText(text, x, y);
+			this.value = value;
+			this.max = max;
+			this.x = x;
+			this.y = y;
+			valid = true;
+		}
+		cache.draw(batch);
+	}
+}
@@ -0,0 +1,297 @@
+package world;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * The InputRecording class records one attempt at a level: the seed of
+ * the random number generator, the level, and the player's input at every
+ * tick of the simulation. The simulation is deterministic, so replaying
+ * the input from the same seed plays the attempt again exactly. Only the
+ * ticks at which the input changes are stored.
+ *
+ * Keyframes of the whole game world are added while the attempt is
+ * simulated and written to files along with the input, so a replay
+ * can jump to any point in time without simulating the attempt from
+ * its start.
+ * @author Jason LoBianco
+ */
+public class InputRecording
+{
+	public static final String TAG = InputRecording.class.getName();
+	public static final String EXTENSION = ".rpl";
+
+	//"CBRP" - canyon bunny replay
+	private static final int MAGIC = 0x43425250;
+	//increase whenever the layout below changes, or the simulation
+	//takes its random numbers differently
+	public static final int VERSION = 4;
+
+	//input bits of a tick, INPUT_CONTROL is set while the player
+	//controls the bunny head
+	public static final int INPUT_LEFT = 1;
+	public static final int INPUT_RIGHT = 2;
+	public static final int INPUT_JUMP = 4;
+	public static final int INPUT_CONTROL = 8;
+
+	private final long seed;
+	private final float tickTime;
+	//seed of the endless mode, or null for a level of the campaign
+	private final Long endlessSeed;
+	private final int levelNumber;
+	private final int lives;
+	private final int score;
+
+	//pairs of the tick at which the input changed and the new input
+	private final IntArray changes = new IntArray();
+	//number of recorded ticks
+	private int length;
+
+	//keyframes ordered by tick
+	private final Array<ReplayKeyframe> keyframes = new Array<ReplayKeyframe>();
+
+	/**
+	 * starts an empty recording
+	 * @param seed of the random number generator at the start of the level
+	 * @param tickTime
+	 * @param endlessSeed seed of the endless mode or null
+	 * @param levelNumber level of the campaign, starting at 1
+	 * @param lives at the start of the level
+	 * @param score at the start of the level
+	 */
+	public InputRecording(long seed, float tickTime, Long endlessSeed, int levelNumber, int lives, int score)
+	{
+		this.seed = seed;
+		this.tickTime = tickTime;
+		this.endlessSeed = endlessSeed;
+		this.levelNumber = levelNumber;
+		this.lives = lives;
+		this.score = score;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	public float getTickTime()
+	{
+		return tickTime;
+	}
+
+	public Long getEndlessSeed()
+	{
+		return endlessSeed;
+	}
+
+	public int getLevelNumber()
+	{
+		return levelNumber;
+	}
+
+	public int getLives()
+	{
+		return lives;
+	}
+
+	public int getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * returns the number of recorded ticks
+	 * @return
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * returns the recorded time in seconds
+	 * @return
+	 */
+	public float getDuration()
+	{
+		return length * tickTime;
+	}
+
+	/**
+	 * appends the input of the next tick
+	 * @param input
+	 */
+	public void record(int input)
+	{
+		if(changes.size == 0 || changes.peek() != input)
+		{
+			changes.add(length);
+			changes.add(input);
+		}
+		length++;
+	}
+
+	/**
+	 * forgets the ticks from tick on, along with their keyframes, so the
+	 * recording can go on from there with new input
+	 * @param tick
+	 */
+	public void truncate(int tick)
+	{
+		if(tick >= length) return;
+		length = tick;
+		while(changes.size > 0 && changes.get(changes.size - 2) >= tick)
+		{
+			changes.size -= 2;
+		}
+		while(keyframes.size > 0 && keyframes.peek().tick > tick)
+		{
+			keyframes.pop();
+		}
+	}
+
+	/**
+	 * returns the input of a tick
+	 * @param tick
+	 * @return
+	 */
+	public int getInput(int tick)
+	{
+		//binary search for the last change at or before tick
+		int low = 0;
+		int high = changes.size / 2 - 1;
+		int input = 0;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(changes.get(mid * 2) <= tick)
+			{
+				input = changes.get(mid * 2 + 1);
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+		return input;
+	}
+
+	/**
+	 * adds a keyframe, unless there already is one for its tick
+	 * @param keyframe
+	 */
+	public void addKeyframe(ReplayKeyframe keyframe)
+	{
+		if(keyframes.size > 0 && keyframes.peek().tick >= keyframe.tick) return;
+		keyframes.add(keyframe);
+	}
+
+	/**
+	 * returns the last keyframe at or before a tick, or null if there is
+	 * none
+	 * @param tick
+	 * @return
+	 */
+	public ReplayKeyframe getKeyframe(int tick)
+	{
+		for(int i = keyframes.size - 1; i >= 0; i--)
+		{
+			if(keyframes.get(i).tick <= tick) return keyframes.get(i);
+		}
+		return null;
+	}
+
+	/**
+	 * writes the recording to a file, with its keyframes
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(FileHandle file) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(file.write(false));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(seed);
+			out.writeFloat(tickTime);
+			out.writeBoolean(endlessSeed != null);
+			out.writeLong(endlessSeed != null ? endlessSeed : 0);
+			out.writeInt(levelNumber);
+			out.writeInt(lives);
+			out.writeInt(score);
+			out.writeInt(length);
+			out.writeInt(changes.size / 2);
+			for(int i = 0; i < changes.size; i += 2)
+			{
+				out.writeInt(changes.get(i));
+				out.writeByte(changes.get(i + 1));
+			}
+			out.writeInt(keyframes.size);
+			for(ReplayKeyframe keyframe : keyframes)
+			{
+				keyframe.write(out);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * reads a recording from a file
+	 * @param file
+	 * @return
+	 * @throws IOException if the file is not a recording of this version
+	 */
+	public static InputRecording read(FileHandle file) throws IOException
+	{
+		DataInputStream in = new DataInputStream(file.read());
+		try
+		{
+			if(in.readInt() != MAGIC)
+			{
+				throw new IOException("'" + file + "' is not a recording");
+			}
+			int version = in.readInt();
+			if(version != VERSION)
+			{
+				throw new IOException("'" + file + "' has version " + version + ", expected " + VERSION);
+			}
+			long seed = in.readLong();
+			float tickTime = in.readFloat();
+			boolean endless = in.readBoolean();
+			long endlessSeed = in.readLong();
+			int levelNumber = in.readInt();
+			int lives = in.readInt();
+			int score = in.readInt();
+			InputRecording recording = new InputRecording(seed, tickTime, endless ? endlessSeed : null,
+					levelNumber, lives, score);
+			recording.length = in.readInt();
+			int numChanges = in.readInt();
+			recording.changes.ensureCapacity(numChanges * 2);
+			for(int i = 0; i < numChanges; i++)
+			{
+				recording.changes.add(in.readInt());
+				recording.changes.add(in.readByte());
+			}
+			int numKeyframes = in.readInt();
+			for(int i = 0; i < numKeyframes; i++)
+			{
+				recording.addKeyframe(ReplayKeyframe.read(in));
+			}
+			return recording;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package world;
 
+import java.util.Random;
+
 import objects.AbstractGameObject;
 import objects.BunnyHead;
 import objects.Carrot;
@@ -8,31 +10,166 @@ import objects.Feather;
 import objects.Goal;
 import objects.GoldCoin;
 import objects.Mountains;
+import objects.RenderState;
 import objects.Rock;
 import objects.WaterOverlay;
+import screens.QualityPreset;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+import com.lobiancogdx.game.Constants;
 
 /**
  * The level class is responsilbe for loading in the level data
- * and drawing the level.
+ * and drawing the level. Rocks, gold coins and feathers are streamed
+ * in fixed-width column chunks around the camera, so only the chunks
+ * near the player are held in memory.
  * @author Jason LoBianco
  */
-public class Level 
+public class Level
 {
 	public static final String TAG = Level.class.getName();
 	
 	public enum BLOCK_TYPE 
 	{
 		EMPTY(0, 0, 0),							//black
-		ROCK(0, 255, 0),						//green
-		PLAYER_SPAWNPOINT(255, 255, 255),		//white
-		ITEM_FEATHER(255, 0, 255),				//purple
-		ITEM_GOLD_COIN(255, 255, 0),			//yellow
-		GOAL(255, 0, 0);						//red
+		ROCK(0, 255, 0)							//green
+		{
+			@Override
+			public void record(LevelData.Builder data, int pixelX, int pixelY, boolean continuesRun)
+			{
+				if(continuesRun)
+				{
+					//same color as the last pixel, extend the current rock
+					data.rocks.items[data.rocks.size - 1]++;
+				}
+				else
+				{
+					data.rocks.add(pixelX);
+					data.rocks.add(pixelY);
+					data.rocks.add(1);
+				}
+			}
+			
+			@Override
+			public AbstractGameObject newObject()
+			{
+				return new Rock();
+			}
+			
+			@Override
+			public void place(AbstractGameObject obj, float pixelX, float baseHeight)
+			{
+				float heightIncreaseFactor = 0.25f;
+				float offsetHeight = -2.5f;
+				obj.position.set(pixelX, baseHeight * obj.dimension.y * heightIncreaseFactor + offsetHeight);
+			}
+		},
+		PLAYER_SPAWNPOINT(255, 255, 255)		//white
+		{
+			@Override
+			public void record(LevelData.Builder data, int pixelX, int pixelY, boolean continuesRun)
+			{
+				data.spawnX = pixelX;
+				data.spawnY = pixelY;
+			}
+			
+			@Override
+			public AbstractGameObject newObject()
+			{
+				return new BunnyHead();
+			}
+			
+			@Override
+			public void place(AbstractGameObject obj, float pixelX, float baseHeight)
+			{
+				float offsetHeight = -3.0f;
+				obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
+			}
+		},
+		ITEM_FEATHER(255, 0, 255)				//purple
+		{
+			@Override
+			public void record(LevelData.Builder data, int pixelX, int pixelY, boolean continuesRun)
+			{
+				data.feathers.add(pixelX);
+				data.feathers.add(pixelY);
+			}
+			
+			@Override
+			public AbstractGameObject newObject()
+			{
+				return new Feather();
+			}
+			
+			@Override
+			public void place(AbstractGameObject obj, float pixelX, float baseHeight)
+			{
+				float offsetHeight = -1.5f;
+				obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
+			}
+		},
+		ITEM_GOLD_COIN(255, 255, 0)				//yellow
+		{
+			@Override
+			public void record(LevelData.Builder data, int pixelX, int pixelY, boolean continuesRun)
+			{
+				data.goldCoins.add(pixelX);
+				data.goldCoins.add(pixelY);
+			}
+			
+			@Override
+			public AbstractGameObject newObject()
+			{
+				return new GoldCoin();
+			}
+			
+			@Override
+			public void place(AbstractGameObject obj, float pixelX, float baseHeight)
+			{
+				float offsetHeight = -1.5f;
+				obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
+			}
+		},
+		GOAL(255, 0, 0)							//red
+		{
+			@Override
+			public void record(LevelData.Builder data, int pixelX, int pixelY, boolean continuesRun)
+			{
+				data.goalX = pixelX;
+				data.goalY = pixelY;
+			}
+			
+			@Override
+			public AbstractGameObject newObject()
+			{
+				return new Goal();
+			}
+			
+			@Override
+			public void place(AbstractGameObject obj, float pixelX, float baseHeight)
+			{
+				float offsetHeight = -7.0f;
+				obj.position.set(pixelX, baseHeight + offsetHeight);
+			}
+		};
+		
+		//lookup table from 32-bit RGBA color to block type
+		private static final IntMap<BLOCK_TYPE> colorLookup = new IntMap<BLOCK_TYPE>();
+		static
+		{
+			for(BLOCK_TYPE type : values())
+			{
+				colorLookup.put(type.color, type);
+			}
+		}
 		
 		private int color;
 		
@@ -41,6 +178,17 @@ public class Level
 			color = r << 24 | g << 16 | b << 8 | 0xff;
 		}
 		
+		/**
+		 * returns the block type of a pixel color, or null if
+		 * the color is unknown
+		 * @param color
+		 * @return
+		 */
+		public static BLOCK_TYPE forColor(int color)
+		{
+			return colorLookup.get(color);
+		}
+		
 		/**
 		 * checks to see if a pixel is the same color
 		 * @param color
@@ -59,9 +207,74 @@ public class Level
 		{
 			return color;
 		}
+		
+		/**
+		 * stores a pixel of this block type in the level data.
+		 * continuesRun is true if the previous pixel had the same color.
+		 * @param data
+		 * @param pixelX
+		 * @param pixelY
+		 * @param continuesRun
+		 */
+		public void record(LevelData.Builder data, int pixelX, int pixelY, boolean continuesRun)
+		{
+			//nothing to store for empty space
+		}
+		
+		/**
+		 * creates an unplaced game object for this block type, or
+		 * null if there is nothing to create.
+		 * @return
+		 */
+		public AbstractGameObject newObject()
+		{
+			return null;
+		}
+		
+		/**
+		 * moves a game object of this block type to a pixel column
+		 * and height.
+		 * @param obj
+		 * @param pixelX
+		 * @param baseHeight
+		 */
+		public void place(AbstractGameObject obj, float pixelX, float baseHeight)
+		{
+			
+		}
+		
+		/**
+		 * creates the game object for this block type at a pixel
+		 * column and height, or null if there is nothing to create.
+		 * @param pixelX
+		 * @param baseHeight
+		 * @return
+		 */
+		public AbstractGameObject create(float pixelX, float baseHeight)
+		{
+			AbstractGameObject obj = newObject();
+			if(obj != null) place(obj, pixelX, baseHeight);
+			return obj;
+		}
+	}
+	
+	/**
+	 * Gets told when items are streamed in and out and when rocks
+	 * enter and leave the active area, so their physics bodies can
+	 * follow. Rocks only have bodies while they are active.
+	 * @author Jason LoBianco
+	 */
+	public interface ChunkListener
+	{
+		public void onRockEntered(Rock rock);
+		public void onRockLeft(Rock rock);
+		public void onGoldCoinLoaded(GoldCoin goldCoin);
+		public void onGoldCoinUnloaded(GoldCoin goldCoin);
+		public void onFeatherLoaded(Feather feather);
+		public void onFeatherUnloaded(Feather feather);
 	}
 	
-	//objects
+	//objects (only those in resident chunks)
 	public Array<Rock> rocks;
 	
 	//decoration
@@ -74,163 +287,865 @@ public class Level
 	public Array<Carrot> carrots;
 	public Goal goal;
 	
-	public Level(String filename)
+	//broadphase for the collision tests, holds the resident rocks
+	//and the items that have not been collected yet
+	public final CollisionGrid<Rock> rockGrid = new CollisionGrid<Rock>(Constants.COLLISION_GRID_CELL_SIZE);
+	public final CollisionGrid<GoldCoin> goldCoinGrid = new CollisionGrid<GoldCoin>(Constants.COLLISION_GRID_CELL_SIZE);
+	public final CollisionGrid<Feather> featherGrid = new CollisionGrid<Feather>(Constants.COLLISION_GRID_CELL_SIZE);
+	
+	//chunk streaming
+	private LevelData data;
+	private int numChunks;
+	private LevelChunkIndex rockIndex;
+	private LevelChunkIndex goldCoinIndex;
+	private LevelChunkIndex featherIndex;
+	//range of resident chunks, empty while lastChunk < firstChunk
+	private int firstChunk;
+	private int lastChunk;
+	//resident objects by record index
+	private IntMap<Rock> residentRocks;
+	private IntIntMap rockRefs;
+	private IntMap<GoldCoin> residentGoldCoins;
+	private IntMap<Feather> residentFeathers;
+	//items collected in chunks that have been evicted since
+	private Bits collectedGoldCoins;
+	private Bits collectedFeathers;
+	protected ChunkListener chunkListener;
+	//pool of the celebration carrots, set by the world controller
+	private Pool<Carrot> carrotPool;
+	
+	//column of the level at x = 0 of the world. It is moved along
+	//with the player, so positions stay small and precise however
+	//long the level is.
+	protected int originColumn;
+	
+	//clock of the ambient motion of the rocks, now and at the
+	//previous tick
+	private float time;
+	private float lastTime;
+	
+	//area around the camera in which objects are updated, the
+	//others sleep until they come back into it
+	private final Rectangle activeArea = new Rectangle();
+	private int frame;
+	private Array<Rock> activeRocks = new Array<Rock>();
+	private Array<Rock> lastActiveRocks = new Array<Rock>();
+	private final Array<GoldCoin> activeGoldCoins = new Array<GoldCoin>();
+	private final Array<Feather> activeFeathers = new Array<Feather>();
+	
+	//used to find the rock under a carrot
+	private final Rectangle supportArea = new Rectangle();
+	private final Array<Rock> supportRocks = new Array<Rock>();
+	private final Vector2 relativeVelocity = new Vector2();
+	
+	//visible area plus a margin, objects outside of it are not drawn
+	private final Rectangle cullArea = new Rectangle();
+	private final Array<GoldCoin> visibleGoldCoins = new Array<GoldCoin>();
+	private final Array<Feather> visibleFeathers = new Array<Feather>();
+	
+	//the images of the rocks are only written to the render state
+	//again when rocks have been added, removed or moved. The versions
+	//count on across levels, only the simulation writes them.
+	private static int rockVersions;
+	private int rockVersion;
+	private boolean rocksChanged = true;
+	
+	//evicted objects are kept for reuse
+	protected final Pool<Rock> rockPool = new Pool<Rock>()
+	{
+		@Override
+		protected Rock newObject()
+		{
+			return (Rock)BLOCK_TYPE.ROCK.newObject();
+		}
+	};
+	protected final Pool<GoldCoin> goldCoinPool = new Pool<GoldCoin>()
+	{
+		@Override
+		protected GoldCoin newObject()
+		{
+			return (GoldCoin)BLOCK_TYPE.ITEM_GOLD_COIN.newObject();
+		}
+	};
+	protected final Pool<Feather> featherPool = new Pool<Feather>()
+	{
+		@Override
+		protected Feather newObject()
+		{
+			return (Feather)BLOCK_TYPE.ITEM_FEATHER.newObject();
+		}
+	};
+	
+	/**
+	 * creates a level from a level file
+	 * @param filename
+	 * @param random generator of the simulation
+	 */
+	public Level(String filename, Random random)
+	{
+		init(filename, random);
+	}
+	
+	/**
+	 * creates an empty level, for levels that lay out their
+	 * objects themselves
+	 */
+	protected Level()
+	{
+		
+	}
+	
+	/**
+	 * creates a level from level data that has already been loaded.
+	 * Nothing in here touches OpenGL, so it may run on a worker
+	 * thread.
+	 * @param data
+	 * @param random generator of the simulation, the decoration takes
+	 * its random numbers from it
+	 */
+	public Level(LevelData data, Random random)
 	{
-		init(filename);
+		build(data, random);
 	}
 	
-	private void init(String filename)
+	private void init(String filename, Random random)
 	{
+		//load the compiled level, the image is only decoded
+		//the first time it is seen
+		build(LevelCache.load(filename), random);
+		Gdx.app.debug(TAG, "level '" + filename + "' loaded");
+	}
+	
+	/**
+	 * indexes the level data by chunk and creates the game objects 
+	 * around the spawn point through the BLOCK_TYPE factories.
+	 * @param data
+	 * @param random
+	 */
+	private void build(LevelData data, Random random)
+	{
+		this.data = data;
+		
 		//player character
 		bunnyHead = null;
 		
-		//objects
-		rocks = new Array<Rock>();
-		goldCoins = new Array<GoldCoin>();
-		feathers = new Array<Feather>();
-		carrots = new Array<Carrot>();
+		initObjects();
+		buildChunkIndex();
 		
-		//load image file that represents the level data
-		Pixmap pixmap = new Pixmap(Gdx.files.internal(filename));
+		//player spawn point
+		if(data.spawnX >= 0)
+		{
+			bunnyHead = (BunnyHead)BLOCK_TYPE.PLAYER_SPAWNPOINT.create(toWorldX(data.spawnX), 
+					data.getBaseHeight(data.spawnY));
+		}
 		
-		//scan pixels from top-left to bottom-right
-		int lastPixel = -1;
-		for(int pixelY = 0; pixelY < pixmap.getHeight(); pixelY++)
+		//goal
+		if(data.goalX >= 0)
 		{
-			for(int pixelX = 0; pixelX < pixmap.getWidth(); pixelX++)
-			{
-				AbstractGameObject obj = null;
-				float offsetHeight = 0;
-				
-				//height grows from bottom to top
-				float baseHeight = pixmap.getHeight() - pixelY;
-				
-				//get color of current pixel as 32-bit RGBA value
-				int currentPixel = pixmap.getPixel(pixelX, pixelY);
-				//find matching color value to identify block type at (x,y)
-				//point and create the corresponding game object if there is
-				//a match
-				
-				//empty space
-				if(BLOCK_TYPE.EMPTY.sameColor(currentPixel))
-				{
-					//do nothing
-				}
-				//rock
-				else if(BLOCK_TYPE.ROCK.sameColor(currentPixel))
-				{
-					if(lastPixel != currentPixel)
-					{
-						obj = new Rock();
-						float heightIncreaseFactor = 0.25f;
-						offsetHeight = -2.5f;
-						obj.position.set(pixelX, baseHeight * obj.dimension.y * heightIncreaseFactor + offsetHeight);
-						rocks.add((Rock)obj);
-					}
-					else
-					{
-						rocks.get(rocks.size - 1).increaseLength(1);
-					}
-				}
-				//player spawn point
-				else if(BLOCK_TYPE.PLAYER_SPAWNPOINT.sameColor(currentPixel))
-				{
-					obj = new BunnyHead();
-					offsetHeight = -3.0f;
-					obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
-					bunnyHead = (BunnyHead)obj;
-				}
-				//feather
-				else if(BLOCK_TYPE.ITEM_FEATHER.sameColor(currentPixel))
-				{
-					obj = new Feather();
-					offsetHeight = -1.5f;
-					obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
-					feathers.add((Feather)obj);
-				}
-				//gold coin
-				else if(BLOCK_TYPE.ITEM_GOLD_COIN.sameColor(currentPixel))
-				{
-					obj = new GoldCoin();
-					offsetHeight = -1.5f;
-					obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
-					goldCoins.add((GoldCoin)obj);
-				}
-				//goal
-				else if(BLOCK_TYPE.GOAL.sameColor(currentPixel))
-				{
-					obj = new Goal();
-					offsetHeight = -7.0f;
-					obj.position.set(pixelX, baseHeight + offsetHeight);
-					goal = (Goal)obj;
-				}
-				//unknown object/pixel color
-				else 
-				{
-					int r = 0xff & (currentPixel >>> 24);		//red color channel
-					int g = 0xff & (currentPixel >>> 16);		//green color channel
-					int b = 0xff & (currentPixel >>> 8);		//blue color channel
-					int a = 0xff & currentPixel;				//alpha channel
-					Gdx.app.error(TAG, "Unknown object at x<" + pixelX + "> y<" + pixelY +
-							">: r<" + r+ "> g<" + g + "> b<" + b + "> a<" + a + ">");
-				}
-				lastPixel = currentPixel;
-			}
+			goal = (Goal)BLOCK_TYPE.GOAL.create(toWorldX(data.goalX), data.getBaseHeight(data.goalY));
 		}
+		
 		//decoration
-		clouds = new Clouds(pixmap.getWidth());
+		clouds = new Clouds(data.width, random);
 		clouds.position.set(0, 2);
-		mountains = new Mountains(pixmap.getWidth());
+		mountains = new Mountains(data.width);
 		mountains.position.set(-1, -1);
-		waterOverlay = new WaterOverlay(pixmap.getWidth());
+		waterOverlay = new WaterOverlay(data.width);
 		waterOverlay.position.set(0, -3.75f);
 		
-		//free memory
-		pixmap.dispose();
-		Gdx.app.debug(TAG, "level '" + filename + "' loaded");
+		//load the chunks around the spawn point
+		float spawnX = bunnyHead != null ? bunnyHead.position.x : 0;
+		updateChunks(spawnX, spawnX);
 	}
 	
 	/**
-	 * draws all of the game objects to the level.
-	 * @param batch
+	 * creates the empty lists of game objects
 	 */
-	public void render(SpriteBatch batch)
+	protected void initObjects()
 	{
-		//Draw Mountains
-		mountains.render(batch);
+		rocks = new Array<Rock>();
+		goldCoins = new Array<GoldCoin>();
+		feathers = new Array<Feather>();
+		carrots = new Array<Carrot>();
+	}
+	
+	/**
+	 * sorts the rocks, gold coins and feathers into fixed-width
+	 * column chunks. A rock run is listed in every chunk it overlaps.
+	 */
+	private void buildChunkIndex()
+	{
+		int chunkWidth = Constants.LEVEL_CHUNK_WIDTH;
+		numChunks = Math.max(1, (data.width + chunkWidth - 1) / chunkWidth);
+		firstChunk = 0;
+		lastChunk = -1;
 		
-		//Draw Rocks
-		for(Rock rock : rocks)
+		rockIndex = new LevelChunkIndex(numChunks);
+		for(int i = 0; i < data.getRockCount(); i++)
 		{
-			rock.render(batch);
+			rockIndex.count(getChunk(data.getRockX(i)), getChunk(data.getRockX(i) + data.getRockLength(i) - 1));
+		}
+		rockIndex.allocate();
+		for(int i = 0; i < data.getRockCount(); i++)
+		{
+			rockIndex.add(i, getChunk(data.getRockX(i)), getChunk(data.getRockX(i) + data.getRockLength(i) - 1));
 		}
 		
-		//Draw Gold Coins
-		for(GoldCoin goldCoin : goldCoins)
+		goldCoinIndex = new LevelChunkIndex(numChunks);
+		for(int i = 0; i < data.getGoldCoinCount(); i++)
 		{
-			goldCoin.render(batch);
+			goldCoinIndex.count(getChunk(data.getGoldCoinX(i)), getChunk(data.getGoldCoinX(i)));
+		}
+		goldCoinIndex.allocate();
+		for(int i = 0; i < data.getGoldCoinCount(); i++)
+		{
+			goldCoinIndex.add(i, getChunk(data.getGoldCoinX(i)), getChunk(data.getGoldCoinX(i)));
 		}
 		
-		//Draw Feathers
+		featherIndex = new LevelChunkIndex(numChunks);
+		for(int i = 0; i < data.getFeatherCount(); i++)
+		{
+			featherIndex.count(getChunk(data.getFeatherX(i)), getChunk(data.getFeatherX(i)));
+		}
+		featherIndex.allocate();
+		for(int i = 0; i < data.getFeatherCount(); i++)
+		{
+			featherIndex.add(i, getChunk(data.getFeatherX(i)), getChunk(data.getFeatherX(i)));
+		}
+		
+		residentRocks = new IntMap<Rock>();
+		rockRefs = new IntIntMap();
+		residentGoldCoins = new IntMap<GoldCoin>();
+		residentFeathers = new IntMap<Feather>();
+		collectedGoldCoins = new Bits(data.getGoldCoinCount());
+		collectedFeathers = new Bits(data.getFeatherCount());
+	}
+	
+	/**
+	 * returns the chunk that contains a column
+	 * @param column
+	 * @return
+	 */
+	private int getChunk(int column)
+	{
+		return MathUtils.clamp(column / Constants.LEVEL_CHUNK_WIDTH, 0, numChunks - 1);
+	}
+	
+	/**
+	 * sets the listener that is told about streamed rocks and items
+	 * @param chunkListener
+	 */
+	public void setChunkListener(ChunkListener chunkListener)
+	{
+		this.chunkListener = chunkListener;
+	}
+	
+	/**
+	 * sets the pool the celebration carrots come from and go back to.
+	 * It outlives the level, so the carrots are kept across levels.
+	 * @param carrotPool
+	 */
+	public void setCarrotPool(Pool<Carrot> carrotPool)
+	{
+		this.carrotPool = carrotPool;
+	}
+	
+	/**
+	 * returns the clock of the ambient motion of the rocks
+	 * @return
+	 */
+	public float getTime()
+	{
+		return time;
+	}
+	
+	/**
+	 * sets the clock of the ambient motion of the rocks. The rocks
+	 * follow at their next update.
+	 * @param time
+	 */
+	public void setTime(float time)
+	{
+		this.time = time;
+	}
+	
+	/**
+	 * returns the column of the level at the origin of the world
+	 * @return
+	 */
+	public int getOriginColumn()
+	{
+		return originColumn;
+	}
+	
+	/**
+	 * returns the x position in the world of a column of the level
+	 * @param column
+	 * @return
+	 */
+	protected float toWorldX(int column)
+	{
+		return column - originColumn;
+	}
+	
+	/**
+	 * moves the origin of the world columns to the right. Every
+	 * object of the level moves along, so nothing changes but the
+	 * coordinates.
+	 * @param columns
+	 */
+	public void shiftOrigin(int columns)
+	{
+		originColumn += columns;
+		float dx = columns;
+		for(Rock rock : rocks)
+		{
+			rock.shiftOrigin(dx);
+			rockGrid.update(rock);
+		}
+		for(GoldCoin goldCoin : goldCoins)
+		{
+			goldCoin.shiftOrigin(dx);
+			goldCoinGrid.update(goldCoin);
+		}
 		for(Feather feather : feathers)
 		{
-			feather.render(batch);
+			feather.shiftOrigin(dx);
+			featherGrid.update(feather);
+		}
+		for(Carrot carrot : carrots)
+		{
+			carrot.shiftOrigin(dx);
+		}
+		bunnyHead.shiftOrigin(dx);
+		if(goal != null) goal.shiftOrigin(dx);
+		clouds.shiftOrigin(dx);
+		mountains.shiftOrigin(dx);
+		waterOverlay.shiftOrigin(dx);
+		activeArea.x -= dx;
+		rocksChanged = true;
+	}
+	
+	/**
+	 * sets the area in which objects are updated, usually the area
+	 * the camera sees plus a margin
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 */
+	public void setActiveArea(float x, float y, float width, float height)
+	{
+		activeArea.set(x, y, width, height);
+	}
+	
+	/**
+	 * makes the chunks that overlap the visible columns left to right
+	 * resident, plus a margin ahead of and behind them, and evicts all
+	 * others. Does nothing while the range of chunks stays the same.
+	 * @param left
+	 * @param right
+	 */
+	public void updateChunks(float left, float right)
+	{
+		int chunkWidth = Constants.LEVEL_CHUNK_WIDTH;
+		int first = MathUtils.clamp(MathUtils.floor((left + originColumn) / chunkWidth) - Constants.LEVEL_CHUNKS_BEHIND, 
+				0, numChunks - 1);
+		int last = MathUtils.clamp(MathUtils.floor((right + originColumn) / chunkWidth) + Constants.LEVEL_CHUNKS_AHEAD, 
+				0, numChunks - 1);
+		setResidentChunks(first, last);
+	}
+	
+	/**
+	 * makes the chunks first to last resident and evicts all others
+	 * @param first
+	 * @param last
+	 */
+	private void setResidentChunks(int first, int last)
+	{
+		if(first == firstChunk && last == lastChunk) return;
+		
+		//load new chunks first, so rocks that span an old
+		//and a new chunk stay where they are
+		for(int chunk = first; chunk <= last; chunk++)
+		{
+			if(chunk < firstChunk || chunk > lastChunk) loadChunk(chunk);
+		}
+		for(int chunk = firstChunk; chunk <= lastChunk; chunk++)
+		{
+			if(chunk < first || chunk > last) unloadChunk(chunk);
+		}
+		firstChunk = first;
+		lastChunk = last;
+	}
+	
+	/**
+	 * creates the objects of a chunk
+	 * @param chunk
+	 */
+	private void loadChunk(int chunk)
+	{
+		for(int i = rockIndex.getStart(chunk); i < rockIndex.getEnd(chunk); i++)
+		{
+			int index = rockIndex.get(i);
+			if(rockRefs.getAndIncrement(index, 0, 1) > 0) continue;
+			Rock rock = rockPool.obtain();
+			placeRock(index, rock);
+			residentRocks.put(index, rock);
+			addRock(rock);
+		}
+		
+		for(int i = goldCoinIndex.getStart(chunk); i < goldCoinIndex.getEnd(chunk); i++)
+		{
+			int index = goldCoinIndex.get(i);
+			if(collectedGoldCoins.get(index)) continue;
+			GoldCoin goldCoin = goldCoinPool.obtain();
+			BLOCK_TYPE.ITEM_GOLD_COIN.place(goldCoin, toWorldX(data.getGoldCoinX(index)), 
+					data.getBaseHeight(data.getGoldCoinY(index)));
+			initAnimationPhase(index, goldCoin);
+			residentGoldCoins.put(index, goldCoin);
+			addGoldCoin(goldCoin);
+		}
+		
+		for(int i = featherIndex.getStart(chunk); i < featherIndex.getEnd(chunk); i++)
+		{
+			int index = featherIndex.get(i);
+			if(collectedFeathers.get(index)) continue;
+			Feather feather = featherPool.obtain();
+			BLOCK_TYPE.ITEM_FEATHER.place(feather, toWorldX(data.getFeatherX(index)), 
+					data.getBaseHeight(data.getFeatherY(index)));
+			residentFeathers.put(index, feather);
+			addFeather(feather);
+		}
+	}
+	
+	/**
+	 * releases the objects of a chunk, remembering which items
+	 * have been collected
+	 * @param chunk
+	 */
+	private void unloadChunk(int chunk)
+	{
+		for(int i = rockIndex.getStart(chunk); i < rockIndex.getEnd(chunk); i++)
+		{
+			int index = rockIndex.get(i);
+			if(rockRefs.getAndIncrement(index, 0, -1) > 1) continue;
+			rockRefs.remove(index, 0);
+			removeRock(residentRocks.remove(index));
+		}
+		
+		for(int i = goldCoinIndex.getStart(chunk); i < goldCoinIndex.getEnd(chunk); i++)
+		{
+			int index = goldCoinIndex.get(i);
+			GoldCoin goldCoin = residentGoldCoins.remove(index);
+			if(goldCoin == null) continue;
+			if(goldCoin.collected) collectedGoldCoins.set(index);
+			removeGoldCoin(goldCoin);
+		}
+		
+		for(int i = featherIndex.getStart(chunk); i < featherIndex.getEnd(chunk); i++)
+		{
+			int index = featherIndex.get(i);
+			Feather feather = residentFeathers.remove(index);
+			if(feather == null) continue;
+			if(feather.collected) collectedFeathers.set(index);
+			removeFeather(feather);
+		}
+	}
+	
+	/**
+	 * adds a streamed in rock to the level
+	 * @param rock
+	 */
+	protected void addRock(Rock rock)
+	{
+		rock.updateFloat(time, 0);
+		rocks.add(rock);
+		rockGrid.add(rock);
+		rocksChanged = true;
+	}
+	
+	/**
+	 * removes a rock from the level and returns it to the pool
+	 * @param rock
+	 */
+	protected void removeRock(Rock rock)
+	{
+		rocks.removeValue(rock, true);
+		rockGrid.remove(rock);
+		rocksChanged = true;
+		//the carrots that have settled on the rock go with it
+		for(int i = carrots.size - 1; i >= 0; i--)
+		{
+			if(carrots.get(i).rock == rock) carrotPool.free(carrots.removeIndex(i));
+		}
+		//an active rock still has its body
+		if(rock.body != null && chunkListener != null) chunkListener.onRockLeft(rock);
+		rockPool.free(rock);
+	}
+	
+	/**
+	 * adds a streamed in gold coin to the level
+	 * @param goldCoin
+	 */
+	protected void addGoldCoin(GoldCoin goldCoin)
+	{
+		goldCoins.add(goldCoin);
+		if(!goldCoin.collected) goldCoinGrid.add(goldCoin);
+		if(chunkListener != null) chunkListener.onGoldCoinLoaded(goldCoin);
+	}
+	
+	/**
+	 * removes a gold coin from the level and returns it to the pool
+	 * @param goldCoin
+	 */
+	protected void removeGoldCoin(GoldCoin goldCoin)
+	{
+		goldCoins.removeValue(goldCoin, true);
+		goldCoinGrid.remove(goldCoin);
+		if(chunkListener != null) chunkListener.onGoldCoinUnloaded(goldCoin);
+		goldCoinPool.free(goldCoin);
+	}
+	
+	/**
+	 * adds a streamed in feather to the level
+	 * @param feather
+	 */
+	protected void addFeather(Feather feather)
+	{
+		feathers.add(feather);
+		if(!feather.collected) featherGrid.add(feather);
+		if(chunkListener != null) chunkListener.onFeatherLoaded(feather);
+	}
+	
+	/**
+	 * removes a feather from the level and returns it to the pool
+	 * @param feather
+	 */
+	protected void removeFeather(Feather feather)
+	{
+		feathers.removeValue(feather, true);
+		featherGrid.remove(feather);
+		if(chunkListener != null) chunkListener.onFeatherUnloaded(feather);
+		featherPool.free(feather);
+	}
+	
+	/**
+	 * marks a gold coin as collected and takes it out of the
+	 * collision tests
+	 * @param goldCoin
+	 */
+	public void collect(GoldCoin goldCoin)
+	{
+		goldCoin.collected = true;
+		goldCoinGrid.remove(goldCoin);
+	}
+	
+	/**
+	 * marks a feather as collected and takes it out of the
+	 * collision tests
+	 * @param feather
+	 */
+	public void collect(Feather feather)
+	{
+		feather.collected = true;
+		featherGrid.remove(feather);
+	}
+	
+	/**
+	 * moves a rock to the start of its run and restarts its
+	 * floating motion
+	 * @param index
+	 * @param rock
+	 */
+	private void placeRock(int index, Rock rock)
+	{
+		BLOCK_TYPE.ROCK.place(rock, toWorldX(data.getRockX(index)), data.getBaseHeight(data.getRockY(index)));
+		rock.setLength(data.getRockLength(index));
+		initFloatPhase(index, rock);
+	}
+	
+	/**
+	 * gives a rock a fixed phase derived from its key. This keeps the
+	 * motion the same when the rock is streamed out and back in or
+	 * the level is restored.
+	 * @param key
+	 * @param rock
+	 */
+	protected static void initFloatPhase(int key, Rock rock)
+	{
+		rock.setFloatPhase(hash(key) % Rock.FLOAT_PHASES);
+	}
+	
+	/**
+	 * starts the animation of a gold coin at a point derived from its
+	 * key, for the same reason as initFloatPhase(). It doesn't take a
+	 * random number, so streaming doesn't change the random numbers
+	 * of the simulation.
+	 * @param key
+	 * @param goldCoin
+	 */
+	protected static void initAnimationPhase(int key, GoldCoin goldCoin)
+	{
+		goldCoin.stateTime = hash(key) / 65536.0f;
+	}
+	
+	/**
+	 * returns 16 well mixed bits of a key
+	 * @param key
+	 * @return
+	 */
+	private static int hash(int key)
+	{
+		int hash = key * 0x9E3779B9;
+		hash ^= hash >>> 16;
+		return hash & 0xffff;
+	}
+	
+	/**
+	 * captures the mutable state of the level: the resident chunks,
+	 * the collected items and the player character.
+	 * @return
+	 */
+	public LevelSnapshot snapshot()
+	{
+		LevelSnapshot snapshot = new LevelSnapshot();
+		snapshot.originColumn = originColumn;
+		snapshot.firstChunk = firstChunk;
+		snapshot.lastChunk = lastChunk;
+		snapshot.collectedGoldCoins.or(collectedGoldCoins);
+		for(IntMap.Entry<GoldCoin> entry : residentGoldCoins.entries())
+		{
+			if(entry.value.collected) snapshot.collectedGoldCoins.set(entry.key);
+		}
+		snapshot.collectedFeathers.or(collectedFeathers);
+		for(IntMap.Entry<Feather> entry : residentFeathers.entries())
+		{
+			if(entry.value.collected) snapshot.collectedFeathers.set(entry.key);
+		}
+		snapshot.captureBunny(bunnyHead);
+		return snapshot;
+	}
+	
+	/**
+	 * puts the level back into the state of a snapshot in place.
+	 * Resident objects and their bodies are reset rather than created
+	 * again, and chunks that are no longer needed go back to the pools.
+	 * @param snapshot
+	 */
+	public void restore(LevelSnapshot snapshot)
+	{
+		freeCarrots();
+		
+		//collected items
+		collectedGoldCoins.clear();
+		collectedGoldCoins.or(snapshot.collectedGoldCoins);
+		for(IntMap.Entry<GoldCoin> entry : residentGoldCoins.entries())
+		{
+			entry.value.collected = collectedGoldCoins.get(entry.key);
+			if(entry.value.collected) goldCoinGrid.remove(entry.value);
+			else goldCoinGrid.add(entry.value);
+		}
+		collectedFeathers.clear();
+		collectedFeathers.or(snapshot.collectedFeathers);
+		for(IntMap.Entry<Feather> entry : residentFeathers.entries())
+		{
+			entry.value.collected = collectedFeathers.get(entry.key);
+			if(entry.value.collected) featherGrid.remove(entry.value);
+			else featherGrid.add(entry.value);
+		}
+		
+		//rocks and their bodies
+		for(IntMap.Entry<Rock> entry : residentRocks.entries())
+		{
+			Rock rock = entry.value;
+			placeRock(entry.key, rock);
+			rock.updateFloat(time, 0);
+			rockGrid.update(rock);
+			if(rock.body == null) continue;
+			rock.body.setTransform(rock.position, 0);
+			rock.body.setLinearVelocity(0, 0);
 		}
 		
-		//Draw Carrots
+		setResidentChunks(snapshot.firstChunk, snapshot.lastChunk);
+		
+		//player character
+		snapshot.restoreBunny(bunnyHead);
+		saveState();
+	}
+	
+	/**
+	 * removes the celebration carrots and returns them to the pool
+	 */
+	protected void freeCarrots()
+	{
+		carrotPool.freeAll(carrots);
+		carrots.clear();
+	}
+	
+	/**
+	 * moves the goal on once it has been reached. Returns false if
+	 * the level has a single goal that finishes it.
+	 * @return
+	 */
+	public boolean advanceGoal()
+	{
+		return false;
+	}
+	
+	/**
+	 * remembers the state of the moving objects before a tick of the
+	 * simulation. The rocks are drawn at the clock in between.
+	 */
+	public void saveState()
+	{
+		lastTime = time;
+		bunnyHead.saveState();
 		for(Carrot carrot : carrots)
 		{
-			carrot.render(batch);
+			carrot.saveState();
+		}
+		waterOverlay.saveState();
+		clouds.saveState();
+	}
+	
+	/**
+	 * draws an object in between the previous and the current tick
+	 * @param obj
+	 * @param state
+	 */
+	private void renderInterpolated(AbstractGameObject obj, RenderState state)
+	{
+		state.setMotion(obj.position.x - obj.lastPosition.x, obj.position.y - obj.lastPosition.y, 
+				obj.rotation - obj.lastRotation);
+		obj.render(state);
+		state.setMotion(0, 0, 0);
+	}
+	
+	/**
+	 * returns true if an object's bounds overlap the area that is drawn
+	 * @param obj
+	 * @return
+	 */
+	private boolean isVisible(AbstractGameObject obj)
+	{
+		return obj.position.x < cullArea.x + cullArea.width && obj.position.x + obj.bounds.width > cullArea.x
+				&& obj.position.y < cullArea.y + cullArea.height && obj.position.y + obj.bounds.height > cullArea.y;
+	}
+	
+	/**
+	 * writes all of the game objects of the level to the state that is
+	 * drawn, the moving ones along with their motion since the previous
+	 * tick of the simulation. Items and carrots outside of the visible
+	 * area are skipped. The rocks are drawn from a cache, so their
+	 * images are only written when they have changed.
+	 * @param state
+	 * @param visibleArea the part of the world the camera sees
+	 */
+	public void render(RenderState state, Rectangle visibleArea)
+	{
+		float margin = Constants.RENDER_CULL_MARGIN;
+		cullArea.set(visibleArea.x - margin, visibleArea.y - margin, 
+				visibleArea.width + 2 * margin, visibleArea.height + 2 * margin);
+		int drawnCount = 0;
+		
+		//Draw Mountains
+		mountains.render(state);
+		
+		//Draw Rocks from their cache, at the clock in between the ticks
+		if(rocksChanged)
+		{
+			rockVersion = ++rockVersions;
+			rocksChanged = false;
+		}
+		if(state.getRockVersion() != rockVersion)
+		{
+			state.beginRocks(rockVersion);
+			for(Rock rock : rocks)
+			{
+				rock.render(state);
+			}
+			state.endRocks();
+		}
+		state.addLayer(RenderState.LAYER_ROCKS);
+		state.lastTime = lastTime;
+		state.time = time;
+		
+		//Draw Gold Coins, the collected ones are no longer in the grid
+		for(GoldCoin goldCoin : goldCoinGrid.query(cullArea, visibleGoldCoins))
+		{
+			if(!isVisible(goldCoin)) continue;
+			goldCoin.render(state);
+			drawnCount++;
+		}
+		
+		//Draw Feathers
+		for(Feather feather : featherGrid.query(cullArea, visibleFeathers))
+		{
+			if(!isVisible(feather)) continue;
+			feather.render(state);
+			drawnCount++;
+		}
+		
+		//Draw Carrots. All of them are simulated, but lower quality
+		//presets draw only some.
+		int numCarrots = Math.min(carrots.size, QualityPreset.current().getNumCarrots());
+		for(int i = 0; i < numCarrots; i++)
+		{
+			Carrot carrot = carrots.get(i);
+			if(!isVisible(carrot)) continue;
+			drawnCount++;
+			renderInterpolated(carrot, state);
 		}
 		
 		//Draw Player Character
-		bunnyHead.render(batch);
+		renderInterpolated(bunnyHead, state);
 		
 		//Draw WaterOverlay
-		waterOverlay.render(batch);
+		if(QualityPreset.current().hasWaterOverlay())
+		{
+			renderInterpolated(waterOverlay, state);
+		}
+		
+		//Draw Clouds, each one moves on its own
+		clouds.render(state);
 		
-		//Draw Clouds
-		clouds.render(batch);
+		//the grids only hold the items that have not been collected
+		state.drawnCount = drawnCount;
+		state.culledCount = goldCoinGrid.size() + featherGrid.size() + numCarrots - drawnCount;
+	}
+	
+	/**
+	 * updates the rocks in the active area. Rocks that come into it
+	 * are woken up and rocks that left it are put to sleep, so their
+	 * bodies don't move while nobody sees them.
+	 * @param deltaTime
+	 */
+	private void updateRocks(float deltaTime)
+	{
+		frame++;
+		Array<Rock> active = lastActiveRocks;
+		lastActiveRocks = activeRocks;
+		activeRocks = rockGrid.query(activeArea, active);
+		for(Rock rock : activeRocks)
+		{
+			if(rock.activeFrame != frame - 1)
+			{
+				rock.wake(time - deltaTime);
+				if(rock.body == null && chunkListener != null) chunkListener.onRockEntered(rock);
+			}
+			rock.activeFrame = frame;
+			rock.updateFloat(time, deltaTime);
+			rockGrid.update(rock);
+		}
+		for(Rock rock : lastActiveRocks)
+		{
+			//still resident, but outside of the active area
+			if(rock.activeFrame != frame && rock.body != null && chunkListener != null)
+			{
+				chunkListener.onRockLeft(rock);
+			}
+		}
 	}
 	
 	/**
@@ -239,23 +1154,85 @@ public class Level
 	 */
 	public void update(float deltaTime)
 	{
+		saveState();
 		bunnyHead.update(deltaTime);
-		for(Rock rock : rocks)
-		{
-			rock.update(deltaTime);
-		}
-		for(GoldCoin goldCoin : goldCoins)
+		time += deltaTime;
+		updateRocks(deltaTime);
+		for(GoldCoin goldCoin : goldCoinGrid.query(activeArea, activeGoldCoins))
 		{
 			goldCoin.update(deltaTime);
 		}
-		for(Feather feather : feathers)
+		for(Feather feather : featherGrid.query(activeArea, activeFeathers))
 		{
 			feather.update(deltaTime);
 		}
-		for(Carrot carrot : carrots)
+		//carrots are moved by their bodies until they have rested on
+		//a rock for a while, then they float along with it. Carrots
+		//that fall into the water go back to the pool.
+		for(int i = carrots.size - 1; i >= 0; i--)
 		{
+			Carrot carrot = carrots.get(i);
+			if(carrot.settled)
+			{
+				carrot.updateSettled(time, deltaTime);
+				continue;
+			}
 			carrot.update(deltaTime);
+			if(carrot.position.y < Constants.WATER_LEVEL)
+			{
+				carrotPool.free(carrots.removeIndex(i));
+			}
+			else
+			{
+				updateCarrotRest(carrot, deltaTime);
+			}
 		}
 		clouds.update(deltaTime);
 	}
+	
+	/**
+	 * settles a carrot once it has moved along with the rock below it
+	 * for CARROT_SETTLE_TIME. The rocks float, so Box2D never puts the
+	 * carrots on them to sleep, and the carrot's speed is measured
+	 * against the rock's. Carrots in a pile measure against the rock
+	 * under the pile.
+	 * @param carrot
+	 * @param deltaTime
+	 */
+	private void updateCarrotRest(Carrot carrot, float deltaTime)
+	{
+		Rock rock = findSupport(carrot);
+		relativeVelocity.set(carrot.body.getLinearVelocity());
+		if(rock != null && rock.body != null) relativeVelocity.sub(rock.body.getLinearVelocity());
+		if(rock == null || relativeVelocity.len() > Constants.CARROT_SETTLE_SPEED
+				|| Math.abs(carrot.body.getAngularVelocity()) > Constants.CARROT_SETTLE_SPEED)
+		{
+			carrot.restTime = 0;
+			return;
+		}
+		carrot.restTime += deltaTime;
+		if(carrot.restTime >= Constants.CARROT_SETTLE_TIME) carrot.settle(rock, time);
+	}
+	
+	/**
+	 * returns the highest rock within CARROT_SUPPORT_DEPTH below a
+	 * carrot, or null if there is none
+	 * @param carrot
+	 * @return
+	 */
+	private Rock findSupport(Carrot carrot)
+	{
+		supportArea.set(carrot.position.x - carrot.origin.x, carrot.position.y - Constants.CARROT_SUPPORT_DEPTH, 
+				carrot.dimension.x, Constants.CARROT_SUPPORT_DEPTH);
+		Rock support = null;
+		for(Rock rock : rockGrid.query(supportArea, supportRocks))
+		{
+			if(rock.position.x > supportArea.x + supportArea.width
+					|| rock.position.x + rock.bounds.width < supportArea.x) continue;
+			float top = rock.position.y + rock.bounds.height;
+			if(top > carrot.position.y) continue;
+			if(support == null || top > support.position.y + support.bounds.height) support = rock;
+		}
+		return support;
+	}
 }
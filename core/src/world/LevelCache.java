@@ -0,0 +1,119 @@
+package world;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * The LevelCache class compiles each level image once and reuses the
+ * compiled level on later launches. Compiled levels are stored in local
+ * storage under the SHA-1 hash of the image's contents, so an edited
+ * image is picked up automatically.
+ * @author Jason LoBianco
+ */
+public class LevelCache
+{
+	public static final String TAG = LevelCache.class.getName();
+
+	//location of the compiled levels in local storage
+	public static final String CACHE_DIR = "cache/levels/";
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	//static helper: prevent instantiation
+	private LevelCache()
+	{
+
+	}
+
+	/**
+	 * returns the level data of a level image, from the compiled level
+	 * if there is one, otherwise by decoding and compiling the image.
+	 * @param filename
+	 * @return
+	 */
+	public static LevelData load(String filename)
+	{
+		byte[] image = Gdx.files.internal(filename).readBytes();
+		if(!Gdx.files.isLocalStorageAvailable())
+		{
+			return decode(image);
+		}
+
+		FileHandle compiled = Gdx.files.local(CACHE_DIR + hash(image) + LevelFile.EXTENSION);
+		if(compiled.exists())
+		{
+			try
+			{
+				LevelData data = LevelFile.map(compiled.file());
+				Gdx.app.debug(TAG, "level '" + filename + "' mapped from '" + compiled.path() + "'");
+				return data;
+			}
+			catch(IOException e)
+			{
+				Gdx.app.error(TAG, "Couldn't map compiled level '" + compiled.path() + "', recompiling", e);
+			}
+		}
+
+		LevelData data = decode(image);
+		try
+		{
+			compiled.parent().mkdirs();
+			LevelFile.write(data, compiled.file());
+			Gdx.app.debug(TAG, "level '" + filename + "' compiled to '" + compiled.path() + "'");
+		}
+		catch(IOException e)
+		{
+			Gdx.app.error(TAG, "Couldn't write compiled level '" + compiled.path() + "'", e);
+		}
+		return data;
+	}
+
+	/**
+	 * decodes the level image
+	 * @param image
+	 * @return
+	 */
+	private static LevelData decode(byte[] image)
+	{
+		Pixmap pixmap = new Pixmap(image, 0, image.length);
+		try
+		{
+			return LevelDecoder.decode(pixmap, pixmap.getWidth() >= LevelDecoder.PARALLEL_MIN_WIDTH);
+		}
+		finally
+		{
+			//free memory
+			pixmap.dispose();
+		}
+	}
+
+	/**
+	 * returns the SHA-1 hash of the data as a hex string
+	 * @param data
+	 * @return
+	 */
+	static String hash(byte[] data)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+			char[] hex = new char[digest.length * 2];
+			for(int i = 0; i < digest.length; i++)
+			{
+				hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+				hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+			}
+			return new String(hex);
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new GdxRuntimeException("SHA-1 is not available", e);
+		}
+	}
+}
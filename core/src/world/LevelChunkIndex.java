@@ -0,0 +1,94 @@
+package world;
+
+/**
+ * The LevelChunkIndex class lists, for every chunk of a level, the
+ * records that overlap it. The lists are packed into a single array,
+ * so the index costs one int per chunk plus one int per entry.
+ * It is filled in two passes: every record is counted first, then
+ * added in the same order.
+ * @author Jason LoBianco
+ */
+class LevelChunkIndex
+{
+	private final int numChunks;
+	private final int[] offsets;
+	private int[] entries;
+	private int[] fill;
+
+	public LevelChunkIndex(int numChunks)
+	{
+		this.numChunks = numChunks;
+		offsets = new int[numChunks + 1];
+	}
+
+	/**
+	 * counts a record that spans the chunks firstChunk to lastChunk
+	 * @param firstChunk
+	 * @param lastChunk
+	 */
+	public void count(int firstChunk, int lastChunk)
+	{
+		for(int chunk = firstChunk; chunk <= lastChunk; chunk++)
+		{
+			offsets[chunk + 1]++;
+		}
+	}
+
+	/**
+	 * reserves room for all counted records
+	 */
+	public void allocate()
+	{
+		for(int chunk = 0; chunk < numChunks; chunk++)
+		{
+			offsets[chunk + 1] += offsets[chunk];
+		}
+		entries = new int[offsets[numChunks]];
+		fill = new int[numChunks];
+		System.arraycopy(offsets, 0, fill, 0, numChunks);
+	}
+
+	/**
+	 * adds a record that spans the chunks firstChunk to lastChunk
+	 * @param record
+	 * @param firstChunk
+	 * @param lastChunk
+	 */
+	public void add(int record, int firstChunk, int lastChunk)
+	{
+		for(int chunk = firstChunk; chunk <= lastChunk; chunk++)
+		{
+			entries[fill[chunk]++] = record;
+		}
+	}
+
+	/**
+	 * first entry of a chunk
+	 * @param chunk
+	 * @return
+	 */
+	public int getStart(int chunk)
+	{
+		return offsets[chunk];
+	}
+
+	/**
+	 * one past the last entry of a chunk
+	 * @param chunk
+	 * @return
+	 */
+	public int getEnd(int chunk)
+	{
+		return offsets[chunk + 1];
+	}
+
+	/**
+	 * returns the record stored at an entry
+	 * @param entry
+	 * @return
+	 */
+	public int get(int entry)
+	{
+		return entries[entry];
+	}
+}
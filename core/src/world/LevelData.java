@@ -0,0 +1,217 @@
+package world;
+
+import java.nio.IntBuffer;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * The LevelData class holds the decoded contents of a level image
+ * as plain pixel coordinates, before any game objects are created.
+ * Rocks are already merged into horizontal runs. The records are read
+ * through int buffers, so a level can be backed by a decoded image or
+ * by a memory-mapped compiled level file alike.
+ * @author Jason LoBianco
+ */
+public class LevelData
+{
+	//size of the level image in pixels
+	public final int width;
+	public final int height;
+
+	//player spawn point and goal, -1 if the level has none
+	public final int spawnX;
+	public final int spawnY;
+	public final int goalX;
+	public final int goalY;
+
+	//rock runs stored as (pixelX, pixelY, length) triples
+	private final IntBuffer rocks;
+	//gold coins stored as (pixelX, pixelY) pairs
+	private final IntBuffer goldCoins;
+	//feathers stored as (pixelX, pixelY) pairs
+	private final IntBuffer feathers;
+
+	LevelData(int width, int height, int spawnX, int spawnY, int goalX, int goalY,
+			IntBuffer rocks, IntBuffer goldCoins, IntBuffer feathers)
+	{
+		this.width = width;
+		this.height = height;
+		this.spawnX = spawnX;
+		this.spawnY = spawnY;
+		this.goalX = goalX;
+		this.goalY = goalY;
+		this.rocks = rocks;
+		this.goldCoins = goldCoins;
+		this.feathers = feathers;
+	}
+
+	/**
+	 * returns the number of rock runs
+	 * @return
+	 */
+	public int getRockCount()
+	{
+		return rocks.limit() / 3;
+	}
+
+	/**
+	 * returns the pixel column at which a rock run starts
+	 * @param index
+	 * @return
+	 */
+	public int getRockX(int index)
+	{
+		return rocks.get(index * 3);
+	}
+
+	/**
+	 * returns the pixel row of a rock run
+	 * @param index
+	 * @return
+	 */
+	public int getRockY(int index)
+	{
+		return rocks.get(index * 3 + 1);
+	}
+
+	/**
+	 * returns the number of pixels a rock run is long
+	 * @param index
+	 * @return
+	 */
+	public int getRockLength(int index)
+	{
+		return rocks.get(index * 3 + 2);
+	}
+
+	/**
+	 * returns the number of gold coins
+	 * @return
+	 */
+	public int getGoldCoinCount()
+	{
+		return goldCoins.limit() / 2;
+	}
+
+	/**
+	 * returns the pixel column of a gold coin
+	 * @param index
+	 * @return
+	 */
+	public int getGoldCoinX(int index)
+	{
+		return goldCoins.get(index * 2);
+	}
+
+	/**
+	 * returns the pixel row of a gold coin
+	 * @param index
+	 * @return
+	 */
+	public int getGoldCoinY(int index)
+	{
+		return goldCoins.get(index * 2 + 1);
+	}
+
+	/**
+	 * returns the number of feathers
+	 * @return
+	 */
+	public int getFeatherCount()
+	{
+		return feathers.limit() / 2;
+	}
+
+	/**
+	 * returns the pixel column of a feather
+	 * @param index
+	 * @return
+	 */
+	public int getFeatherX(int index)
+	{
+		return feathers.get(index * 2);
+	}
+
+	/**
+	 * returns the pixel row of a feather
+	 * @param index
+	 * @return
+	 */
+	public int getFeatherY(int index)
+	{
+		return feathers.get(index * 2 + 1);
+	}
+
+	/**
+	 * returns the height of a pixel row measured from the bottom
+	 * of the level, the way the level objects are placed.
+	 * @param pixelY
+	 * @return
+	 */
+	public float getBaseHeight(int pixelY)
+	{
+		return height - pixelY;
+	}
+
+	/**
+	 * returns the approximate number of bytes the level data occupies,
+	 * used to keep the level cache within its memory budget
+	 * @return
+	 */
+	public long getSizeInBytes()
+	{
+		return 4L * (rocks.limit() + goldCoins.limit() + feathers.limit()) + 64;
+	}
+
+	/**
+	 * returns read-only views of the raw records, used when the
+	 * level is written to a compiled level file.
+	 * @return
+	 */
+	IntBuffer getRocks()
+	{
+		return rocks.asReadOnlyBuffer();
+	}
+
+	IntBuffer getGoldCoins()
+	{
+		return goldCoins.asReadOnlyBuffer();
+	}
+
+	IntBuffer getFeathers()
+	{
+		return feathers.asReadOnlyBuffer();
+	}
+
+	/**
+	 * The Builder class collects the records while a level image
+	 * is scanned.
+	 * @author Jason LoBianco
+	 */
+	public static class Builder
+	{
+		public int width;
+		public int height;
+
+		public final IntArray rocks = new IntArray();
+		public final IntArray goldCoins = new IntArray();
+		public final IntArray feathers = new IntArray();
+
+		public int spawnX = -1;
+		public int spawnY = -1;
+		public int goalX = -1;
+		public int goalY = -1;
+
+		/**
+		 * creates the level data, sharing the collected arrays
+		 * @return
+		 */
+		public LevelData build()
+		{
+			return new LevelData(width, height, spawnX, spawnY, goalX, goalY,
+					IntBuffer.wrap(rocks.items, 0, rocks.size).slice(),
+					IntBuffer.wrap(goldCoins.items, 0, goldCoins.size).slice(),
+					IntBuffer.wrap(feathers.items, 0, feathers.size).slice());
+		}
+	}
+}
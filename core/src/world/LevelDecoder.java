@@ -0,0 +1,264 @@
+package world;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import world.Level.BLOCK_TYPE;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * The LevelDecoder class turns a level image into LevelData. The pixels
+ * are read a whole row at a time from the pixmap's backing buffer and
+ * every color is looked up in the BLOCK_TYPE table instead of being
+ * tested against each block type in turn.
+ * @author Jason LoBianco
+ */
+public class LevelDecoder
+{
+	public static final String TAG = LevelDecoder.class.getName();
+
+	//levels at least this many pixels wide are worth scanning in parallel
+	public static final int PARALLEL_MIN_WIDTH = 4096;
+
+	private static ExecutorService executor;
+
+	//static helper: prevent instantiation
+	private LevelDecoder()
+	{
+
+	}
+
+	/**
+	 * decodes the level image. When parallel is true the rows are split
+	 * into bands that are scanned on worker threads and merged afterwards.
+	 * @param pixmap
+	 * @param parallel
+	 * @return
+	 */
+	public static LevelData decode(Pixmap pixmap, boolean parallel)
+	{
+		int height = pixmap.getHeight();
+		int numBands = parallel ? Math.min(height, Runtime.getRuntime().availableProcessors()) : 1;
+
+		List<Band> bands = new ArrayList<Band>(Math.max(numBands, 1));
+		for(int i = 0; i < numBands; i++)
+		{
+			bands.add(new Band(pixmap, height * i / numBands, height * (i + 1) / numBands));
+		}
+
+		if(numBands > 1)
+		{
+			try
+			{
+				for(Future<Band> future : getExecutor().invokeAll(bands))
+				{
+					future.get();
+				}
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new GdxRuntimeException("Level decoding interrupted", e);
+			}
+			catch(ExecutionException e)
+			{
+				throw new GdxRuntimeException("Level decoding failed", e.getCause());
+			}
+		}
+		else
+		{
+			for(Band band : bands)
+			{
+				band.call();
+			}
+		}
+		return merge(bands, pixmap.getWidth(), height);
+	}
+
+	/**
+	 * joins the decoded bands in scan order. A rock run that ends one band
+	 * and continues at the start of the next one is merged, exactly like
+	 * a sequential scan from top-left to bottom-right would do.
+	 * @param bands
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	private static LevelData merge(List<Band> bands, int width, int height)
+	{
+		LevelData.Builder data;
+		if(bands.size() == 1)
+		{
+			data = bands.get(0).data;
+		}
+		else
+		{
+			data = new LevelData.Builder();
+			int lastPixel = -1;
+			for(Band band : bands)
+			{
+				int rockStart = 0;
+				if(band.firstPixel == lastPixel && BLOCK_TYPE.ROCK.sameColor(lastPixel) && data.rocks.size > 0)
+				{
+					data.rocks.items[data.rocks.size - 1] += band.data.rocks.get(2);
+					rockStart = 3;
+				}
+				data.rocks.addAll(band.data.rocks, rockStart, band.data.rocks.size - rockStart);
+				data.goldCoins.addAll(band.data.goldCoins);
+				data.feathers.addAll(band.data.feathers);
+				if(band.data.spawnX >= 0)
+				{
+					data.spawnX = band.data.spawnX;
+					data.spawnY = band.data.spawnY;
+				}
+				if(band.data.goalX >= 0)
+				{
+					data.goalX = band.data.goalX;
+					data.goalY = band.data.goalY;
+				}
+				lastPixel = band.lastPixel;
+			}
+		}
+		data.width = width;
+		data.height = height;
+		return data.build();
+	}
+
+	/**
+	 * reads one row of pixels as 32-bit RGBA values
+	 * @param pixmap
+	 * @param pixels
+	 * @param pixelY
+	 * @param bytes
+	 * @param row
+	 */
+	private static void readRow(Pixmap pixmap, ByteBuffer pixels, int pixelY, byte[] bytes, int[] row)
+	{
+		int width = row.length;
+		switch(pixmap.getFormat())
+		{
+		case RGBA8888:
+			pixels.position(pixelY * width * 4);
+			pixels.get(bytes, 0, width * 4);
+			for(int x = 0, i = 0; x < width; x++, i += 4)
+			{
+				row[x] = (bytes[i] & 0xff) << 24 | (bytes[i + 1] & 0xff) << 16
+						| (bytes[i + 2] & 0xff) << 8 | (bytes[i + 3] & 0xff);
+			}
+			break;
+		case RGB888:
+			pixels.position(pixelY * width * 3);
+			pixels.get(bytes, 0, width * 3);
+			for(int x = 0, i = 0; x < width; x++, i += 3)
+			{
+				row[x] = (bytes[i] & 0xff) << 24 | (bytes[i + 1] & 0xff) << 16
+						| (bytes[i + 2] & 0xff) << 8 | 0xff;
+			}
+			break;
+		default:
+			//uncommon formats are converted by the pixmap itself
+			for(int x = 0; x < width; x++)
+			{
+				row[x] = pixmap.getPixel(x, pixelY);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * returns the shared pool of decoder threads
+	 * @return
+	 */
+	private static synchronized ExecutorService getExecutor()
+	{
+		if(executor == null)
+		{
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "level-decoder");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * A band is a range of rows that is scanned on its own.
+	 * @author Jason LoBianco
+	 */
+	private static class Band implements Callable<Band>
+	{
+		private final Pixmap pixmap;
+		private final int fromY;
+		private final int toY;
+		private final LevelData.Builder data = new LevelData.Builder();
+
+		//first and last pixel of the band, needed to merge rock runs
+		private int firstPixel = -1;
+		private int lastPixel = -1;
+
+		public Band(Pixmap pixmap, int fromY, int toY)
+		{
+			this.pixmap = pixmap;
+			this.fromY = fromY;
+			this.toY = toY;
+		}
+
+		/**
+		 * scans the pixels from top-left to bottom-right of the band
+		 */
+		@Override
+		public Band call()
+		{
+			int width = pixmap.getWidth();
+			int[] row = new int[width];
+			byte[] bytes = new byte[width * 4];
+			ByteBuffer pixels = pixmap.getPixels().duplicate();
+
+			BLOCK_TYPE lastType = null;
+			for(int pixelY = fromY; pixelY < toY; pixelY++)
+			{
+				readRow(pixmap, pixels, pixelY, bytes, row);
+				if(pixelY == fromY && width > 0) firstPixel = row[0];
+				for(int pixelX = 0; pixelX < width; pixelX++)
+				{
+					int currentPixel = row[pixelX];
+					boolean continuesRun = currentPixel == lastPixel;
+					BLOCK_TYPE type = continuesRun ? lastType : BLOCK_TYPE.forColor(currentPixel);
+					if(type != null)
+					{
+						type.record(data, pixelX, pixelY, continuesRun);
+					}
+					else
+					{
+						//unknown object/pixel color
+						int r = 0xff & (currentPixel >>> 24);		//red color channel
+						int g = 0xff & (currentPixel >>> 16);		//green color channel
+						int b = 0xff & (currentPixel >>> 8);		//blue color channel
+						int a = 0xff & currentPixel;				//alpha channel
+						Gdx.app.error(TAG, "Unknown object at x<" + pixelX + "> y<" + pixelY +
+								">: r<" + r + "> g<" + g + "> b<" + b + "> a<" + a + ">");
+					}
+					lastPixel = currentPixel;
+					lastType = type;
+				}
+			}
+			return this;
+		}
+	}
+}
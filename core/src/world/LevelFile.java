@@ -0,0 +1,148 @@
+package world;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * The LevelFile class reads and writes compiled levels. A compiled level
+ * is a flat list of big-endian ints: a header followed by the rock runs,
+ * gold coins and feathers exactly as they are stored in LevelData. It is
+ * loaded by memory-mapping the file, so nothing is parsed or copied.
+ * @author Jason LoBianco
+ */
+public class LevelFile
+{
+	public static final String EXTENSION = ".lvl";
+
+	//"CBLV" - canyon bunny level
+	private static final int MAGIC = 0x43424C56;
+	//increase whenever the layout below changes
+	public static final int VERSION = 1;
+
+	//magic, version, width, height, spawnX, spawnY, goalX, goalY,
+	//number of rock, gold coin and feather ints
+	private static final int HEADER_INTS = 11;
+
+	//static helper: prevent instantiation
+	private LevelFile()
+	{
+
+	}
+
+	/**
+	 * writes the level data to a compiled level file. The file is written
+	 * next to the target first and then renamed, so a crash never leaves
+	 * a half written level behind.
+	 * @param data
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(LevelData data, File file) throws IOException
+	{
+		IntBuffer rocks = data.getRocks();
+		IntBuffer goldCoins = data.getGoldCoins();
+		IntBuffer feathers = data.getFeathers();
+
+		ByteBuffer buffer = ByteBuffer.allocate(4 * (HEADER_INTS + rocks.remaining()
+				+ goldCoins.remaining() + feathers.remaining()));
+		IntBuffer ints = buffer.asIntBuffer();
+		ints.put(MAGIC).put(VERSION);
+		ints.put(data.width).put(data.height);
+		ints.put(data.spawnX).put(data.spawnY);
+		ints.put(data.goalX).put(data.goalY);
+		ints.put(rocks.remaining()).put(goldCoins.remaining()).put(feathers.remaining());
+		ints.put(rocks).put(goldCoins).put(feathers);
+
+		File tmp = new File(file.getPath() + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(tmp, "rw");
+		try
+		{
+			out.setLength(0);
+			FileChannel channel = out.getChannel();
+			while(buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+		if(file.exists() && !file.delete())
+		{
+			throw new IOException("Couldn't replace '" + file + "'");
+		}
+		if(!tmp.renameTo(file))
+		{
+			throw new IOException("Couldn't rename '" + tmp + "' to '" + file + "'");
+		}
+	}
+
+	/**
+	 * memory-maps a compiled level file. The returned level data reads
+	 * its records straight from the mapping.
+	 * @param file
+	 * @return
+	 * @throws IOException if the file is not a compiled level of this version
+	 */
+	public static LevelData map(File file) throws IOException
+	{
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = in.getChannel();
+			//the mapping stays valid after the file is closed
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			IntBuffer ints = buffer.asIntBuffer();
+			if(ints.limit() < HEADER_INTS || ints.get(0) != MAGIC)
+			{
+				throw new IOException("'" + file + "' is not a compiled level");
+			}
+			if(ints.get(1) != VERSION)
+			{
+				throw new IOException("'" + file + "' has version " + ints.get(1) + ", expected " + VERSION);
+			}
+			int numRockInts = ints.get(8);
+			int numGoldCoinInts = ints.get(9);
+			int numFeatherInts = ints.get(10);
+			if(numRockInts < 0 || numGoldCoinInts < 0 || numFeatherInts < 0
+					|| (long)HEADER_INTS + numRockInts + numGoldCoinInts + numFeatherInts != ints.limit())
+			{
+				throw new IOException("'" + file + "' is truncated");
+			}
+			int offset = HEADER_INTS;
+			IntBuffer rocks = section(ints, offset, numRockInts);
+			offset += numRockInts;
+			IntBuffer goldCoins = section(ints, offset, numGoldCoinInts);
+			offset += numGoldCoinInts;
+			IntBuffer feathers = section(ints, offset, numFeatherInts);
+			return new LevelData(ints.get(2), ints.get(3), ints.get(4), ints.get(5), ints.get(6), ints.get(7),
+					rocks, goldCoins, feathers);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * returns a view of length ints starting at offset
+	 * @param ints
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	private static IntBuffer section(IntBuffer ints, int offset, int length)
+	{
+		IntBuffer view = ints.duplicate();
+		view.position(offset);
+		view.limit(offset + length);
+		return view.slice();
+	}
+}
@@ -0,0 +1,214 @@
+package world;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.lobiancogdx.game.Constants;
+
+/**
+ * The LevelGenerator class lays out the chunks of the endless mode. Each
+ * chunk is generated from the seed and its own index alone, so chunks can
+ * be generated in any order, thrown away and generated again, and the same
+ * seed always gives the same world. The records are written in pixel
+ * coordinates of a virtual level image, just like a decoded level.
+ * @author Jason LoBianco
+ */
+public class LevelGenerator
+{
+	public static final String TAG = LevelGenerator.class.getName();
+
+	//height of the virtual level image
+	public static final int HEIGHT = 32;
+
+	//range of rock heights, measured from the bottom of the image
+	private static final int MIN_ROCK_HEIGHT = 1;
+	private static final int MAX_ROCK_HEIGHT = 4;
+	//height of the first rock, the player spawns on top of it
+	private static final int SPAWN_ROCK_HEIGHT = 2;
+
+	//rock run lengths and the gaps between them in columns
+	private static final int MIN_RUN_LENGTH = 2;
+	private static final int MAX_RUN_LENGTH = 6;
+	private static final int MIN_GAP = 1;
+	private static final int MAX_GAP = 3;
+
+	//chance of a row of gold coins above a rock run
+	private static final float GOLD_COIN_CHANCE = 0.4f;
+	//chance of a feather in a chunk
+	private static final float FEATHER_CHANCE = 0.1f;
+
+	//most gold coins and feathers a chunk can hold, one per column
+	public static final int MAX_GOLD_COINS = Constants.LEVEL_CHUNK_WIDTH;
+	public static final int MAX_FEATHERS = 1;
+
+	private final long seed;
+	private final RandomXS128 random = new RandomXS128();
+
+	public LevelGenerator(long seed)
+	{
+		this.seed = seed;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * generates the records of a chunk into data, replacing what was
+	 * there before. The goal is only set for chunks that end with one.
+	 * @param chunk
+	 * @param data
+	 */
+	public void generate(int chunk, LevelData.Builder data)
+	{
+		data.rocks.clear();
+		data.goldCoins.clear();
+		data.feathers.clear();
+		data.height = HEIGHT;
+		data.spawnX = -1;
+		data.spawnY = -1;
+		data.goalX = -1;
+		data.goalY = -1;
+
+		random.setSeed(mix(mix(seed) + chunk));
+		int chunkWidth = Constants.LEVEL_CHUNK_WIDTH;
+		int chunkStart = chunk * chunkWidth;
+		int chunkEnd = chunkStart + chunkWidth;
+		data.width = chunkEnd;
+
+		//lay out the rock runs, the first chunk starts right at the spawn point
+		int x = chunk == 0 ? chunkStart : chunkStart + nextInt(MIN_GAP, MAX_GAP);
+		while(chunkEnd - x >= MIN_RUN_LENGTH)
+		{
+			int length = Math.min(nextInt(MIN_RUN_LENGTH, MAX_RUN_LENGTH), chunkEnd - x);
+			//no room for another run: reach the end of the chunk, so the gap
+			//to the next chunk is never wider than MAX_GAP
+			if(chunkEnd - x - length < MIN_GAP + MIN_RUN_LENGTH) length = chunkEnd - x;
+			data.rocks.add(x);
+			data.rocks.add(0);
+			data.rocks.add(length);
+			x += length + nextInt(MIN_GAP, MAX_GAP);
+		}
+
+		//walk the rock heights from the height this chunk starts at to the
+		//one the next chunk starts at, one step per run at most
+		int numRuns = data.rocks.size / 3;
+		int height = getStartHeight(chunk);
+		int nextHeight = getStartHeight(chunk + 1);
+		for(int i = 0; i < numRuns; i++)
+		{
+			if(i > 0) height = nextRockHeight(height, nextHeight, numRuns - i);
+			data.rocks.items[i * 3 + 1] = HEIGHT - height;
+			int runX = data.rocks.items[i * 3];
+			int runLength = data.rocks.items[i * 3 + 2];
+
+			//gold coins float a little above the rock
+			if(random.nextFloat() < GOLD_COIN_CHANCE)
+			{
+				int coinHeight = getItemHeight(height);
+				for(int column = runX; column < runX + runLength; column++)
+				{
+					data.goldCoins.add(column);
+					data.goldCoins.add(HEIGHT - coinHeight);
+				}
+			}
+		}
+
+		if(numRuns > 0)
+		{
+			//feather above the middle of a run
+			if(random.nextFloat() < FEATHER_CHANCE)
+			{
+				int run = random.nextInt(numRuns);
+				data.feathers.add(data.rocks.items[run * 3] + data.rocks.items[run * 3 + 2] / 2);
+				data.feathers.add(HEIGHT - getItemHeight(HEIGHT - data.rocks.items[run * 3 + 1]) - 1);
+			}
+
+			//goal on the last run of every few chunks
+			if(hasGoal(chunk))
+			{
+				int run = numRuns - 1;
+				data.goalX = data.rocks.items[run * 3];
+				data.goalY = data.rocks.items[run * 3 + 1] - 1;
+			}
+		}
+
+		if(chunk == 0)
+		{
+			data.spawnX = chunkStart;
+			data.spawnY = HEIGHT - SPAWN_ROCK_HEIGHT - 1;
+		}
+	}
+
+	/**
+	 * checks if a chunk ends with a goal
+	 * @param chunk
+	 * @return
+	 */
+	public boolean hasGoal(int chunk)
+	{
+		return chunk > 0 && (chunk + 1) % Constants.ENDLESS_GOAL_INTERVAL == 0;
+	}
+
+	/**
+	 * returns the height of the first rock of a chunk. It only depends
+	 * on the chunk, so neighbouring chunks agree on it.
+	 * @param chunk
+	 * @return
+	 */
+	private int getStartHeight(int chunk)
+	{
+		if(chunk == 0) return SPAWN_ROCK_HEIGHT;
+		long hash = mix(seed ^ (0x632BE59BD9B4E019L * chunk));
+		return MIN_ROCK_HEIGHT + (int)((hash >>> 33) % (MAX_ROCK_HEIGHT - MIN_ROCK_HEIGHT + 1));
+	}
+
+	/**
+	 * returns the height of the next rock run. It stays within one step
+	 * of the current height and never strays so far from the target that
+	 * the remaining steps could not reach it.
+	 * @param height
+	 * @param target
+	 * @param stepsLeft
+	 * @return
+	 */
+	private int nextRockHeight(int height, int target, int stepsLeft)
+	{
+		int step = random.nextInt(3) - 1;
+		int next = MathUtils.clamp(height + step, MIN_ROCK_HEIGHT, MAX_ROCK_HEIGHT);
+		if(Math.abs(target - next) > stepsLeft)
+		{
+			//head for the target instead
+			next = height + (target > height ? 1 : target < height ? -1 : 0);
+		}
+		return next;
+	}
+
+	/**
+	 * returns the height of the items above a rock of the given height
+	 * @param rockHeight
+	 * @return
+	 */
+	private int getItemHeight(int rockHeight)
+	{
+		return rockHeight * 3 / 4 + 3;
+	}
+
+	private int nextInt(int min, int max)
+	{
+		return min + random.nextInt(max - min + 1);
+	}
+
+	/**
+	 * scrambles the bits of a value (SplitMix64 finalizer)
+	 * @param value
+	 * @return
+	 */
+	private static long mix(long value)
+	{
+		value += 0x9E3779B97F4A7C15L;
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
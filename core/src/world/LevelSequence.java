@@ -0,0 +1,182 @@
+package world;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+import com.lobiancogdx.game.Constants;
+
+/**
+ * The LevelSequence class keeps track of the levels of the campaign.
+ * While a level is played the next one is loaded in the background,
+ * and recently played levels stay in a least recently used cache, so
+ * moving on to the next level or replaying one does not have to read
+ * the level again. The cache is limited by the memory its levels use.
+ * @author Jason LoBianco
+ */
+public class LevelSequence
+{
+	public static final String TAG = LevelSequence.class.getName();
+	public static final LevelSequence instance = new LevelSequence(Constants.LEVELS,
+			Constants.LEVEL_CACHE_MAX_BYTES);
+
+	private final String[] levels;
+	private int currentLevel;
+
+	//parsed levels, least recently used first
+	private final LinkedHashMap<String, LevelData> cache =
+			new LinkedHashMap<String, LevelData>(16, 0.75f, true);
+	private final long maxCacheBytes;
+	private long cacheBytes;
+
+	//the level that is being loaded in the background
+	private final AsyncExecutor prefetcher = new AsyncExecutor(1);
+	private String prefetchingLevel;
+	private AsyncResult<LevelData> prefetching;
+
+	private LevelSequence(String[] levels, long maxCacheBytes)
+	{
+		this.levels = levels;
+		this.maxCacheBytes = maxCacheBytes;
+	}
+
+	/**
+	 * starts the campaign over at the first level
+	 */
+	public void start()
+	{
+		currentLevel = 0;
+	}
+
+	/**
+	 * starts the campaign at a level, the first level is number 1
+	 * @param levelNumber
+	 */
+	public void start(int levelNumber)
+	{
+		currentLevel = MathUtils.clamp(levelNumber - 1, 0, levels.length - 1);
+	}
+
+	/**
+	 * returns true if there is a level after the current one
+	 * @return
+	 */
+	public boolean hasNextLevel()
+	{
+		return currentLevel + 1 < levels.length;
+	}
+
+	/**
+	 * moves on to the next level
+	 */
+	public void nextLevel()
+	{
+		if(hasNextLevel()) currentLevel++;
+	}
+
+	/**
+	 * returns the file name of the current level
+	 * @return
+	 */
+	public String getCurrentLevel()
+	{
+		return levels[currentLevel];
+	}
+
+	/**
+	 * returns the number of the current level, starting at 1
+	 * @return
+	 */
+	public int getCurrentLevelNumber()
+	{
+		return currentLevel + 1;
+	}
+
+	/**
+	 * returns the level data of a level, from the cache or a finished
+	 * prefetch if possible. Blocks until the level is loaded, so it
+	 * should not be called on the render thread.
+	 * @param filename
+	 * @return
+	 */
+	public LevelData load(String filename)
+	{
+		AsyncResult<LevelData> pending = null;
+		synchronized(this)
+		{
+			LevelData data = cache.get(filename);
+			if(data != null)
+			{
+				Gdx.app.debug(TAG, "level '" + filename + "' taken from the cache");
+				return data;
+			}
+			if(filename.equals(prefetchingLevel)) pending = prefetching;
+		}
+		if(pending != null)
+		{
+			//the prefetch is already loading this level, wait for it
+			return pending.get();
+		}
+		LevelData data = LevelCache.load(filename);
+		put(filename, data);
+		return data;
+	}
+
+	/**
+	 * starts loading the level after the current one in the background
+	 */
+	public void prefetchNextLevel()
+	{
+		if(!hasNextLevel()) return;
+		final String filename = levels[currentLevel + 1];
+		synchronized(this)
+		{
+			if(cache.containsKey(filename) || filename.equals(prefetchingLevel)) return;
+			prefetchingLevel = filename;
+			prefetching = prefetcher.submit(new AsyncTask<LevelData>()
+			{
+				@Override
+				public LevelData call() throws Exception
+				{
+					LevelData data = LevelCache.load(filename);
+					put(filename, data);
+					Gdx.app.debug(TAG, "level '" + filename + "' prefetched");
+					return data;
+				}
+			});
+		}
+	}
+
+	/**
+	 * adds a level to the cache and evicts the least recently used
+	 * levels until the cache fits into its memory budget again. The
+	 * newest level is always kept, even if it exceeds the budget alone.
+	 * @param filename
+	 * @param data
+	 */
+	private synchronized void put(String filename, LevelData data)
+	{
+		LevelData old = cache.put(filename, data);
+		if(old != null) cacheBytes -= old.getSizeInBytes();
+		cacheBytes += data.getSizeInBytes();
+		if(filename.equals(prefetchingLevel))
+		{
+			prefetchingLevel = null;
+			prefetching = null;
+		}
+
+		Iterator<Map.Entry<String, LevelData>> entries = cache.entrySet().iterator();
+		while(cacheBytes > maxCacheBytes && cache.size() > 1)
+		{
+			Map.Entry<String, LevelData> eldest = entries.next();
+			cacheBytes -= eldest.getValue().getSizeInBytes();
+			entries.remove();
+			Gdx.app.debug(TAG, "level '" + eldest.getKey() + "' evicted from the cache");
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package world;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import objects.Assets;
+import objects.BunnyHead;
+import objects.BunnyHead.JUMP_STATE;
+import objects.BunnyHead.VIEW_DIRECTION;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Bits;
+
+/**
+ * The LevelSnapshot class holds the mutable state of a level at one
+ * point in time, so the level can be put back into that state without
+ * loading it again. Rock positions and float phases are not stored,
+ * they are derived from the level data whenever a rock is placed.
+ * Positions are relative to the origin the snapshot was taken at.
+ * @author Jason LoBianco
+ */
+public class LevelSnapshot
+{
+	//column of the level at the origin of the world
+	int originColumn;
+	
+	//range of resident chunks
+	int firstChunk;
+	int lastChunk;
+	
+	//items that were collected
+	final Bits collectedGoldCoins = new Bits();
+	final Bits collectedFeathers = new Bits();
+	
+	//endless levels: the next goal and the items collected in the
+	//most recently generated chunks
+	int goalChunk;
+	int[] rememberedChunks;
+	long[] collectedItems;
+	
+	//player character
+	private final Vector2 bunnyPosition = new Vector2();
+	private final Vector2 bunnyVelocity = new Vector2();
+	private float bunnyRotation;
+	private VIEW_DIRECTION viewDirection;
+	private JUMP_STATE jumpState;
+	private float timeJumping;
+	private boolean hasFeatherPowerup;
+	private float timeLeftFeatherPowerup;
+	private Animation animation;
+	private float stateTime;
+	
+	/**
+	 * stores the state of the player character
+	 * @param bunnyHead
+	 */
+	void captureBunny(BunnyHead bunnyHead)
+	{
+		bunnyPosition.set(bunnyHead.position);
+		bunnyVelocity.set(bunnyHead.velocity);
+		bunnyRotation = bunnyHead.rotation;
+		viewDirection = bunnyHead.viewDirection;
+		jumpState = bunnyHead.jumpState;
+		timeJumping = bunnyHead.timeJumping;
+		hasFeatherPowerup = bunnyHead.hasFeatherPowerup;
+		timeLeftFeatherPowerup = bunnyHead.timeLeftFeatherPowerup;
+		animation = bunnyHead.animation;
+		stateTime = bunnyHead.stateTime;
+	}
+	
+	/**
+	 * puts the player character back into the stored state
+	 * @param bunnyHead
+	 */
+	void restoreBunny(BunnyHead bunnyHead)
+	{
+		bunnyHead.position.set(bunnyPosition);
+		bunnyHead.velocity.set(bunnyVelocity);
+		bunnyHead.rotation = bunnyRotation;
+		bunnyHead.viewDirection = viewDirection;
+		bunnyHead.jumpState = jumpState;
+		bunnyHead.timeJumping = timeJumping;
+		bunnyHead.hasFeatherPowerup = hasFeatherPowerup;
+		bunnyHead.timeLeftFeatherPowerup = timeLeftFeatherPowerup;
+		bunnyHead.animation = animation;
+		bunnyHead.stateTime = stateTime;
+	}
+	
+	/**
+	 * writes the snapshot to a stream
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(DataOutputStream out) throws IOException
+	{
+		out.writeInt(originColumn);
+		out.writeInt(firstChunk);
+		out.writeInt(lastChunk);
+		writeBits(out, collectedGoldCoins);
+		writeBits(out, collectedFeathers);
+		out.writeInt(goalChunk);
+		out.writeBoolean(rememberedChunks != null);
+		if(rememberedChunks != null)
+		{
+			out.writeInt(rememberedChunks.length);
+			for(int i = 0; i < rememberedChunks.length; i++)
+			{
+				out.writeInt(rememberedChunks[i]);
+				out.writeLong(collectedItems[i]);
+			}
+		}
+		out.writeFloat(bunnyPosition.x);
+		out.writeFloat(bunnyPosition.y);
+		out.writeFloat(bunnyVelocity.x);
+		out.writeFloat(bunnyVelocity.y);
+		out.writeFloat(bunnyRotation);
+		out.writeByte(viewDirection.ordinal());
+		out.writeByte(jumpState.ordinal());
+		out.writeFloat(timeJumping);
+		out.writeBoolean(hasFeatherPowerup);
+		out.writeFloat(timeLeftFeatherPowerup);
+		out.writeByte(getAnimationIndex(animation));
+		out.writeFloat(stateTime);
+	}
+	
+	/**
+	 * reads a snapshot that was written by write()
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	static LevelSnapshot read(DataInputStream in) throws IOException
+	{
+		LevelSnapshot snapshot = new LevelSnapshot();
+		snapshot.originColumn = in.readInt();
+		snapshot.firstChunk = in.readInt();
+		snapshot.lastChunk = in.readInt();
+		readBits(in, snapshot.collectedGoldCoins);
+		readBits(in, snapshot.collectedFeathers);
+		snapshot.goalChunk = in.readInt();
+		if(in.readBoolean())
+		{
+			int numChunks = in.readInt();
+			snapshot.rememberedChunks = new int[numChunks];
+			snapshot.collectedItems = new long[numChunks];
+			for(int i = 0; i < numChunks; i++)
+			{
+				snapshot.rememberedChunks[i] = in.readInt();
+				snapshot.collectedItems[i] = in.readLong();
+			}
+		}
+		snapshot.bunnyPosition.set(in.readFloat(), in.readFloat());
+		snapshot.bunnyVelocity.set(in.readFloat(), in.readFloat());
+		snapshot.bunnyRotation = in.readFloat();
+		snapshot.viewDirection = VIEW_DIRECTION.values()[in.readByte()];
+		snapshot.jumpState = JUMP_STATE.values()[in.readByte()];
+		snapshot.timeJumping = in.readFloat();
+		snapshot.hasFeatherPowerup = in.readBoolean();
+		snapshot.timeLeftFeatherPowerup = in.readFloat();
+		snapshot.animation = getAnimation(in.readByte());
+		snapshot.stateTime = in.readFloat();
+		return snapshot;
+	}
+	
+	/**
+	 * writes the indices of the set bits, ended by -1
+	 * @param out
+	 * @param bits
+	 * @throws IOException
+	 */
+	private static void writeBits(DataOutputStream out, Bits bits) throws IOException
+	{
+		for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+		{
+			out.writeInt(i);
+		}
+		out.writeInt(-1);
+	}
+	
+	/**
+	 * sets the bits that were written by writeBits()
+	 * @param in
+	 * @param bits
+	 * @throws IOException
+	 */
+	private static void readBits(DataInputStream in, Bits bits) throws IOException
+	{
+		for(int i = in.readInt(); i >= 0; i = in.readInt())
+		{
+			bits.set(i);
+		}
+	}
+	
+	/**
+	 * returns the bunny head's animations in the order they are
+	 * written to files
+	 * @return
+	 */
+	private static Animation[] getAnimations()
+	{
+		return new Animation[] { Assets.instance.bunny.animNormal, Assets.instance.bunny.animCopterTransform,
+				Assets.instance.bunny.animCopterTransformBack, Assets.instance.bunny.animCopterRotate };
+	}
+	
+	/**
+	 * returns the index of an animation of the bunny head, or -1 if
+	 * there is none
+	 * @param animation
+	 * @return
+	 */
+	private static int getAnimationIndex(Animation animation)
+	{
+		Animation[] animations = getAnimations();
+		for(int i = 0; i < animations.length; i++)
+		{
+			if(animations[i] == animation) return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * returns the animation of the bunny head at an index
+	 * @param index
+	 * @return
+	 * @throws IOException if there is no animation at the index
+	 */
+	private static Animation getAnimation(int index) throws IOException
+	{
+		Animation[] animations = getAnimations();
+		if(index < -1 || index >= animations.length) throw new IOException("Unknown animation " + index);
+		return index >= 0 ? animations[index] : null;
+	}
+}
@@ -0,0 +1,119 @@
+package world;
+
+import objects.BunnyHead;
+import objects.Feather;
+import objects.Goal;
+import objects.GoldCoin;
+import objects.Rock;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * The PlayerContacts class collects the contacts of the bunny head's
+ * body while the physics world is stepped. Bodies can't be changed
+ * during a step, so the contacts are only recorded here and handled by
+ * the WorldController after the step.
+ * @author Jason LoBianco
+ */
+public class PlayerContacts implements ContactListener
+{
+	//user data of the sensor under the bunny head's feet
+	public static final Object FOOT = new Object();
+
+	//collision categories of the fixtures
+	public static final short CATEGORY_ROCK = 0x0001;
+	public static final short CATEGORY_BUNNY = 0x0002;
+	public static final short CATEGORY_ITEM = 0x0004;
+	public static final short CATEGORY_CARROT = 0x0008;
+
+	//rocks touched by the foot sensor
+	private int groundContacts;
+
+	//items touched since the last call to clear()
+	public final Array<GoldCoin> goldCoins = new Array<GoldCoin>();
+	public final Array<Feather> feathers = new Array<Feather>();
+	public boolean goalReached;
+
+	/**
+	 * returns true while the bunny head is standing on a rock
+	 * @return
+	 */
+	public boolean isOnGround()
+	{
+		return groundContacts > 0;
+	}
+
+	/**
+	 * forgets the items that were touched
+	 */
+	public void clear()
+	{
+		goldCoins.clear();
+		feathers.clear();
+		goalReached = false;
+	}
+
+	/**
+	 * forgets everything, for a new physics world
+	 */
+	public void reset()
+	{
+		clear();
+		groundContacts = 0;
+	}
+
+	@Override
+	public void beginContact(Contact contact)
+	{
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+		handleContact(fixtureA.getUserData(), fixtureB.getUserData(), true);
+		handleContact(fixtureB.getUserData(), fixtureA.getUserData(), true);
+	}
+
+	@Override
+	public void endContact(Contact contact)
+	{
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+		handleContact(fixtureA.getUserData(), fixtureB.getUserData(), false);
+		handleContact(fixtureB.getUserData(), fixtureA.getUserData(), false);
+	}
+
+	/**
+	 * records a contact of the player with another object
+	 * @param player
+	 * @param other
+	 * @param begin
+	 */
+	private void handleContact(Object player, Object other, boolean begin)
+	{
+		if(player == FOOT)
+		{
+			if(other instanceof Rock) groundContacts += begin ? 1 : -1;
+		}
+		else if(player instanceof BunnyHead && begin)
+		{
+			if(other instanceof GoldCoin) goldCoins.add((GoldCoin)other);
+			else if(other instanceof Feather) feathers.add((Feather)other);
+			else if(other instanceof Goal) goalReached = true;
+		}
+	}
+
+	@Override
+	public void preSolve(Contact contact, Manifold oldManifold)
+	{
+
+	}
+
+	@Override
+	public void postSolve(Contact contact, ContactImpulse impulse)
+	{
+
+	}
+}
@@ -0,0 +1,99 @@
+package world;
+
+import java.util.Arrays;
+
+import screens.GamePreferences;
+import screens.QualityPreset;
+
+import com.badlogic.gdx.Gdx;
+import com.lobiancogdx.game.Constants;
+
+/**
+ * The QualityTuner class picks the quality preset from the measured
+ * frame times. It collects the frame times of a window of frames and
+ * looks at a high percentile of them, so a few hitches don't count but
+ * frames that regularly miss the target do. The preset is lowered by
+ * one step when the window misses the target and raised by one when a
+ * few windows in a row keep up with it comfortably. The chosen preset
+ * is saved in the preferences.
+ * @author Jason LoBianco
+ */
+public class QualityTuner
+{
+	public static final String TAG = QualityTuner.class.getName();
+
+	//windows in a row that must keep up before the preset is raised
+	private static final int WINDOWS_BEFORE_RAISE = 3;
+
+	private final float[] frameTimes = new float[Constants.QUALITY_WINDOW_FRAMES];
+	private final float[] sorted = new float[Constants.QUALITY_WINDOW_FRAMES];
+	private int numFrameTimes;
+	private int goodWindows;
+
+	/**
+	 * adds the time of a frame and changes the preset when a window is
+	 * full. Must be called while the world is not being simulated, as
+	 * the simulation reads the preset.
+	 * @param frameTime in seconds
+	 */
+	public void update(float frameTime)
+	{
+		if(!GamePreferences.instance.autoQuality) return;
+		frameTimes[numFrameTimes++] = frameTime;
+		if(numFrameTimes < frameTimes.length) return;
+		numFrameTimes = 0;
+
+		float percentile = getPercentile(Constants.QUALITY_PERCENTILE);
+		float target = Constants.TARGET_FRAME_TIME;
+		int quality = GamePreferences.instance.quality;
+		if(percentile > target * 1.25f)
+		{
+			goodWindows = 0;
+			if(quality > 0) setQuality(quality - 1, percentile);
+		}
+		else if(percentile < target * 1.05f)
+		{
+			if(++goodWindows >= WINDOWS_BEFORE_RAISE)
+			{
+				goodWindows = 0;
+				if(quality < QualityPreset.values().length - 1) setQuality(quality + 1, percentile);
+			}
+		}
+		else
+		{
+			goodWindows = 0;
+		}
+	}
+
+	/**
+	 * forgets the frames measured so far, after loading or a pause
+	 * whose frame times say nothing about the game
+	 */
+	public void reset()
+	{
+		numFrameTimes = 0;
+		goodWindows = 0;
+	}
+
+	/**
+	 * returns the frame time that the given fraction of the window's
+	 * frames stay at or below
+	 * @param fraction
+	 * @return
+	 */
+	private float getPercentile(float fraction)
+	{
+		System.arraycopy(frameTimes, 0, sorted, 0, frameTimes.length);
+		Arrays.sort(sorted);
+		int index = Math.min(sorted.length - 1, (int) (fraction * sorted.length));
+		return sorted[index];
+	}
+
+	private void setQuality(int quality, float percentile)
+	{
+		GamePreferences.instance.quality = quality;
+		GamePreferences.instance.save();
+		Gdx.app.debug(TAG, "Quality set to " + QualityPreset.values()[quality]
+				+ ", frame time percentile was " + percentile + "s");
+	}
+}
@@ -0,0 +1,91 @@
+package world;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * The ReplayKeyframe class holds the whole state of the game world at
+ * one tick of a recording. A replay jumps to a point in time by restoring
+ * the keyframe before it and simulating only the ticks in between.
+ * The celebration carrots are not part of a keyframe, they are only
+ * decoration.
+ * @author Jason LoBianco
+ */
+public class ReplayKeyframe
+{
+	//tick of the recording the state belongs to
+	int tick;
+
+	//level objects and the player character
+	LevelSnapshot levelSnapshot;
+	//clocks of the floating rocks and the clouds
+	float levelTime;
+	float cloudsTime;
+
+	//state of the random number generator
+	long randomState0;
+	long randomState1;
+
+	//world controller
+	int lives;
+	int score;
+	float livesVisual;
+	float scoreVisual;
+	int levelStartScore;
+	boolean goalReached;
+	float timeLeftGameOverDelay;
+	final Vector2 cameraPosition = new Vector2();
+
+	/**
+	 * writes the keyframe to a stream
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(DataOutputStream out) throws IOException
+	{
+		out.writeInt(tick);
+		levelSnapshot.write(out);
+		out.writeFloat(levelTime);
+		out.writeFloat(cloudsTime);
+		out.writeLong(randomState0);
+		out.writeLong(randomState1);
+		out.writeInt(lives);
+		out.writeInt(score);
+		out.writeFloat(livesVisual);
+		out.writeFloat(scoreVisual);
+		out.writeInt(levelStartScore);
+		out.writeBoolean(goalReached);
+		out.writeFloat(timeLeftGameOverDelay);
+		out.writeFloat(cameraPosition.x);
+		out.writeFloat(cameraPosition.y);
+	}
+
+	/**
+	 * reads a keyframe that was written by write()
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	static ReplayKeyframe read(DataInputStream in) throws IOException
+	{
+		ReplayKeyframe keyframe = new ReplayKeyframe();
+		keyframe.tick = in.readInt();
+		keyframe.levelSnapshot = LevelSnapshot.read(in);
+		keyframe.levelTime = in.readFloat();
+		keyframe.cloudsTime = in.readFloat();
+		keyframe.randomState0 = in.readLong();
+		keyframe.randomState1 = in.readLong();
+		keyframe.lives = in.readInt();
+		keyframe.score = in.readInt();
+		keyframe.livesVisual = in.readFloat();
+		keyframe.scoreVisual = in.readFloat();
+		keyframe.levelStartScore = in.readInt();
+		keyframe.goalReached = in.readBoolean();
+		keyframe.timeLeftGameOverDelay = in.readFloat();
+		keyframe.cameraPosition.set(in.readFloat(), in.readFloat());
+		return keyframe;
+	}
+}
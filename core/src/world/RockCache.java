@@ -0,0 +1,255 @@
+package world;
+
+import java.util.Comparator;
+
+import objects.RenderState;
+import objects.RenderState.Sprite;
+import objects.Rock;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Pool.Poolable;
+import com.lobiancogdx.game.Constants;
+
+/**
+ * The RockCache class keeps the images of the resident rocks in a
+ * SpriteCache, so they are not sent to the graphics card tile by tile
+ * every frame. The rocks are cached at their base height and sorted by
+ * the phase they float in; all rocks of a phase are moved by the same
+ * transform when the cache is drawn. They are also split into blocks
+ * of columns, so the blocks that are out of sight can be skipped.
+ *
+ * The cache is built from the images of the rocks in a render state,
+ * again whenever they have a new version: when rocks are streamed in
+ * or out or the origin of the world moves, which happens far less
+ * often than frames are drawn.
+ * @author Jason LoBianco
+ */
+public class RockCache implements Disposable
+{
+	public static final String TAG = RockCache.class.getName();
+
+	//images the cache holds at least
+	private static final int MIN_CAPACITY = 1000;
+
+	/**
+	 * The cached rocks of one block of columns, one cache per phase.
+	 * @author Jason LoBianco
+	 */
+	private static class Block implements Poolable
+	{
+		private int column;
+		private final int[] cacheIds = new int[Rock.FLOAT_PHASES];
+		private int numImages;
+		//rocks whose first image is in the block
+		private int numRocks;
+		//area covered by the images of the block
+		private final Rectangle bounds = new Rectangle();
+		private boolean visible;
+
+		/**
+		 * extends the block's area to cover an image
+		 * @param image
+		 */
+		private void include(Sprite image)
+		{
+			if(numImages == 0)
+			{
+				bounds.set(image.x, image.y, image.width, image.height);
+			}
+			else
+			{
+				bounds.merge(image.x, image.y);
+				bounds.merge(image.x + image.width, image.y + image.height);
+			}
+			numImages++;
+			if(image.first) numRocks++;
+		}
+
+		@Override
+		public void reset()
+		{
+			for(int i = 0; i < cacheIds.length; i++)
+			{
+				cacheIds[i] = -1;
+			}
+			numImages = 0;
+			numRocks = 0;
+			visible = false;
+		}
+	}
+
+	private SpriteCache cache;
+	private int capacity;
+	//version of the rocks the cache was built from
+	private int version = -1;
+	//rocks in the cache
+	private int numRocks;
+
+	private final Array<Block> blocks = new Array<Block>();
+	private final Pool<Block> blockPool = new Pool<Block>()
+	{
+		@Override
+		protected Block newObject()
+		{
+			Block block = new Block();
+			block.reset();
+			return block;
+		}
+	};
+
+	//the images sorted by block and phase while the cache is built
+	private final Array<Sprite> sortedImages = new Array<Sprite>();
+	private final Comparator<Sprite> blockOrder = new Comparator<Sprite>()
+	{
+		@Override
+		public int compare(Sprite a, Sprite b)
+		{
+			int blockA = getBlock(a);
+			int blockB = getBlock(b);
+			if(blockA != blockB) return blockA < blockB ? -1 : 1;
+			return a.floatPhase - b.floatPhase;
+		}
+	};
+
+	private final Matrix4 transform = new Matrix4();
+
+	/**
+	 * returns the block of columns an image starts in
+	 * @param image
+	 * @return
+	 */
+	private static int getBlock(Sprite image)
+	{
+		return MathUtils.floor(image.x / Constants.LEVEL_CHUNK_WIDTH);
+	}
+
+	/**
+	 * builds the cache from the images of the rocks. Needs OpenGL, so
+	 * it must run on the render thread.
+	 * @param images
+	 */
+	private void build(Array<Sprite> images)
+	{
+		int numImages = images.size;
+		if(cache == null || numImages > capacity)
+		{
+			if(cache != null) cache.dispose();
+			capacity = Math.max(MIN_CAPACITY, numImages * 2);
+			cache = new SpriteCache(capacity, false);
+		}
+		cache.clear();
+		blockPool.freeAll(blocks);
+		blocks.clear();
+		numRocks = 0;
+
+		sortedImages.clear();
+		sortedImages.addAll(images);
+		sortedImages.sort(blockOrder);
+		Block block = null;
+		int i = 0;
+		while(i < sortedImages.size)
+		{
+			int column = getBlock(sortedImages.get(i));
+			int phase = sortedImages.get(i).floatPhase;
+			if(block == null || block.column != column)
+			{
+				block = blockPool.obtain();
+				block.column = column;
+				blocks.add(block);
+			}
+			//one cache for the rocks of the block in this phase
+			cache.beginCache();
+			for(; i < sortedImages.size; i++)
+			{
+				Sprite image = sortedImages.get(i);
+				if(getBlock(image) != column || image.floatPhase != phase) break;
+				TextureRegion reg = image.region;
+				cache.add(reg.getTexture(), image.x, image.y, image.originX, image.originY,
+						image.width, image.height, image.scaleX, image.scaleY, image.rotation,
+						reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(),
+						image.flipX, false);
+				block.include(image);
+				if(image.first) numRocks++;
+			}
+			block.cacheIds[phase] = cache.endCache();
+		}
+		sortedImages.clear();
+	}
+
+	/**
+	 * returns the number of rocks in the cache
+	 * @return
+	 */
+	public int getRockCount()
+	{
+		return numRocks;
+	}
+
+	/**
+	 * draws the rocks of the blocks that overlap an area, building the
+	 * cache first if the rocks of the state are of a new version. Must
+	 * be called outside of a batch's begin() and end().
+	 * @param state
+	 * @param projection
+	 * @param area
+	 * @return the number of rocks that were drawn
+	 */
+	public int render(RenderState state, Matrix4 projection, Rectangle area)
+	{
+		if(state.getRockVersion() != version)
+		{
+			build(state.getRocks());
+			version = state.getRockVersion();
+		}
+
+		boolean anyVisible = false;
+		int drawnRocks = 0;
+		for(Block block : blocks)
+		{
+			block.visible = block.bounds.overlaps(area);
+			anyVisible |= block.visible;
+			if(block.visible) drawnRocks += block.numRocks;
+		}
+		if(!anyVisible) return 0;
+
+		//the level's clock the floating motion is drawn at
+		float time = state.getTime();
+
+		//the edges of the rocks are translucent, but a SpriteCache
+		//doesn't turn on blending like a batch does
+		boolean blending = Gdx.gl.glIsEnabled(GL20.GL_BLEND);
+		Gdx.gl.glEnable(GL20.GL_BLEND);
+		Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		cache.setProjectionMatrix(projection);
+		for(int phase = 0; phase < Rock.FLOAT_PHASES; phase++)
+		{
+			transform.setToTranslation(0, Rock.getFloatOffset(phase, time), 0);
+			cache.setTransformMatrix(transform);
+			cache.begin();
+			for(Block block : blocks)
+			{
+				if(block.visible && block.cacheIds[phase] >= 0) cache.draw(block.cacheIds[phase]);
+			}
+			cache.end();
+		}
+		if(!blending) Gdx.gl.glDisable(GL20.GL_BLEND);
+		return drawnRocks;
+	}
+
+	@Override
+	public void dispose()
+	{
+		if(cache != null) cache.dispose();
+		cache = null;
+		version = -1;
+	}
+}
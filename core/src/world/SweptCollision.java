@@ -0,0 +1,109 @@
+package world;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * The SweptCollision class tests a box that moves during a frame against
+ * a box that stands still. Unlike an overlap test at the end of the frame
+ * it also finds hits that happen in between, so a fast object or a long
+ * frame can't carry an object through a thin one.
+ * @author Jason LoBianco
+ */
+public class SweptCollision
+{
+	//returned when the boxes don't touch during the frame
+	public static final float NO_IMPACT = Float.POSITIVE_INFINITY;
+
+	private SweptCollision()
+	{
+
+	}
+
+	/**
+	 * returns the time within the frame at which a box that moves by
+	 * dx, dy first touches a box that stands still, from 0 at the start
+	 * of the frame to 1 at its end. Returns a negative time if the boxes
+	 * already overlap at the start, and NO_IMPACT if they don't touch.
+	 * The normal of the side of the target that is hit is stored in
+	 * normal, it is zero if the boxes already overlap.
+	 * @param moving bounds at the start of the frame
+	 * @param dx
+	 * @param dy
+	 * @param target
+	 * @param normal
+	 * @return
+	 */
+	public static float timeOfImpact(Rectangle moving, float dx, float dy, Rectangle target, Vector2 normal)
+	{
+		float entryX, exitX;
+		if(dx > 0)
+		{
+			entryX = (target.x - (moving.x + moving.width)) / dx;
+			exitX = (target.x + target.width - moving.x) / dx;
+		}
+		else if(dx < 0)
+		{
+			entryX = (target.x + target.width - moving.x) / dx;
+			exitX = (target.x - (moving.x + moving.width)) / dx;
+		}
+		else
+		{
+			//not moving along x, the boxes have to overlap on it all frame
+			if(moving.x + moving.width <= target.x || moving.x >= target.x + target.width) return NO_IMPACT;
+			entryX = Float.NEGATIVE_INFINITY;
+			exitX = Float.POSITIVE_INFINITY;
+		}
+
+		float entryY, exitY;
+		if(dy > 0)
+		{
+			entryY = (target.y - (moving.y + moving.height)) / dy;
+			exitY = (target.y + target.height - moving.y) / dy;
+		}
+		else if(dy < 0)
+		{
+			entryY = (target.y + target.height - moving.y) / dy;
+			exitY = (target.y - (moving.y + moving.height)) / dy;
+		}
+		else
+		{
+			if(moving.y + moving.height <= target.y || moving.y >= target.y + target.height) return NO_IMPACT;
+			entryY = Float.NEGATIVE_INFINITY;
+			exitY = Float.POSITIVE_INFINITY;
+		}
+
+		//the boxes touch while they overlap on both axes
+		float entry = Math.max(entryX, entryY);
+		float exit = Math.min(exitX, exitY);
+		if(entry > exit || entry > 1 || exit <= 0) return NO_IMPACT;
+
+		if(entry < 0)
+		{
+			normal.set(0, 0);
+		}
+		else if(entryX > entryY)
+		{
+			normal.set(dx > 0 ? -1 : 1, 0);
+		}
+		else
+		{
+			normal.set(0, dy > 0 ? -1 : 1);
+		}
+		return entry;
+	}
+
+	/**
+	 * returns the area a box covers while it moves by dx, dy
+	 * @param moving bounds at the start of the frame
+	 * @param dx
+	 * @param dy
+	 * @param out
+	 * @return out
+	 */
+	public static Rectangle getSweptBounds(Rectangle moving, float dx, float dy, Rectangle out)
+	{
+		return out.set(moving.x + Math.min(0, dx), moving.y + Math.min(0, dy),
+				moving.width + Math.abs(dx), moving.height + Math.abs(dy));
+	}
+}
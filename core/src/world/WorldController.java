@@ -3,12 +3,17 @@ package world;
  * @author Jason LoBianco
  */
 
+import java.io.IOException;
+
+import objects.AbstractGameObject;
 import objects.Assets;
 import objects.AudioManager;
 import objects.BunnyHead;
 import objects.Carrot;
 import objects.Feather;
+import objects.Goal;
 import objects.GoldCoin;
+import objects.RenderState;
 import objects.Rock;
 import objects.BunnyHead.JUMP_STATE;
 import screens.MenuScreen;
@@ -18,7 +23,9 @@ import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
@@ -27,12 +34,31 @@ import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
 import com.lobiancogdx.game.Constants;
 
-public class WorldController extends InputAdapter implements Disposable
+public class WorldController extends InputAdapter implements Disposable, Level.ChunkListener
 {
 	private static final String TAG = WorldController.class.getName();
+	
+	//keys sampled by sampleKeys(), the input can only be read on the
+	//render thread, the simulation may run on another one
+	private static final int KEY_LEFT = 1;
+	private static final int KEY_RIGHT = 2;
+	private static final int KEY_UP = 4;
+	private static final int KEY_DOWN = 8;
+	private static final int KEY_JUMP = 16;
+	private static final int KEY_SHIFT = 32;
+	private static final int KEY_BACKSPACE = 64;
+	private static final int KEY_COMMA = 128;
+	private static final int KEY_PERIOD = 256;
+	private static final int KEY_SLASH = 512;
+	
 	public CameraHelper cameraHelper;
 	public Level level;
 	public int lives;
@@ -41,17 +67,101 @@ public class WorldController extends InputAdapter implements Disposable
 	private Game game;
 	public float livesVisual;
 	public float scoreVisual;
+	private int levelStartScore;
+	
+	//fixed timestep of the simulation and the frame time
+	//that has not been simulated yet
+	private float tickTime = 1.0f / Constants.SIMULATION_TICK_RATE;
+	private float accumulator;
+	//set once the game has switched back to the menu
+	private boolean leftGame;
+	
+	//every attempt at a level is recorded, so it can be played back
+	//and searched through. The random numbers of the game come from
+	//a generator that is seeded at the start of the attempt. It is
+	//handed to whatever needs it instead of MathUtils.random, which
+	//the renderer uses on its own thread.
+	private RandomXS128 random = new RandomXS128();
+	private InputRecording recording;
+	private boolean playingBack;
+	//ticks since the level was loaded
+	private int tickCount;
 	
 	//Rectangles for collision detection
 	private Rectangle r1 = new Rectangle();
 	private Rectangle r2 = new Rectangle();
+	//part of the world the camera sees at the current tick
+	private Rectangle visibleArea = new Rectangle();
+	//objects near the bunny head, found through the collision grids
+	private Array<Rock> nearbyRocks = new Array<Rock>();
+	private Array<GoldCoin> nearbyGoldCoins = new Array<GoldCoin>();
+	private Array<Feather> nearbyFeathers = new Array<Feather>();
+	//swept collision tests, from where the bunny head started the frame
+	private static final float IMPACT_DEPTH = 0.01f;
+	private Vector2 bunnyStart = new Vector2();
+	private Rectangle sweep = new Rectangle();
+	private Vector2 impactNormal = new Vector2();
 	
 	private boolean goalReached;
 	public World b2world;
+	private LevelSnapshot levelSnapshot;
+	//seed of the endless mode, or null when playing the campaign
+	private Long endlessSeed;
+	
+	//levels are built on a worker thread
+	private AsyncExecutor levelLoader = new AsyncExecutor(1);
+	private AsyncResult<LoadedLevel> loadingLevel;
+	
+	//reused when rock bodies are created
+	private BodyDef rockBodyDef = new BodyDef();
+	private FixtureDef rockFixtureDef = new FixtureDef();
+	private PolygonShape rockShape = new PolygonShape();
+	private Vector2 rockOrigin = new Vector2();
+	//bodies of rocks that left the active area, disabled and without
+	//a fixture until another rock enters it
+	private final Array<Body> freeRockBodies = new Array<Body>();
+	//reused when the sensor bodies of items are created
+	private BodyDef itemBodyDef = new BodyDef();
+	private FixtureDef itemFixtureDef = new FixtureDef();
+	private PolygonShape itemShape = new PolygonShape();
+	private Vector2 itemOrigin = new Vector2();
+	//reused when the bodies of the celebration carrots are set up
+	private BodyDef carrotBodyDef = new BodyDef();
+	private FixtureDef carrotFixtureDef = new FixtureDef();
+	private PolygonShape carrotShape = new PolygonShape();
+	//the celebration carrots are kept across levels. Their bodies
+	//belong to the physics world of a level and are dropped with it,
+	//so every carrot that was made is remembered.
+	private final Array<Carrot> allCarrots = new Array<Carrot>();
+	private final Pool<Carrot> carrotPool = new Pool<Carrot>()
+	{
+		@Override
+		protected Carrot newObject()
+		{
+			Carrot carrot = new Carrot();
+			allCarrots.add(carrot);
+			return carrot;
+		}
+	};
+	
+	//contacts of the bunny head's body, only used with BOX2D_PLAYER
+	private PlayerContacts playerContacts = new PlayerContacts();
 	
 	public WorldController(Game game)
+	{
+		this(game, null);
+	}
+	
+	/**
+	 * creates a world controller for the endless mode if endlessSeed
+	 * is set, otherwise for the campaign
+	 * @param game
+	 * @param endlessSeed
+	 */
+	public WorldController(Game game, Long endlessSeed)
 	{
 		this.game = game;
+		this.endlessSeed = endlessSeed;
 		init();
 	}
 	
@@ -61,63 +171,516 @@ public class WorldController extends InputAdapter implements Disposable
 		cameraHelper = new CameraHelper();
 		lives = Constants.LIVES_START;
 		livesVisual = lives;
+		score = 0;
+		scoreVisual = score;
 		timeLeftGameOverDelay = 0;
+		LevelSequence.instance.start();
 		initLevel();
 	}
 	
+	/**
+	 * A level together with the physics world that was built for it.
+	 */
+	private static class LoadedLevel
+	{
+		private final Level level;
+		private final World b2world;
+		
+		public LoadedLevel(Level level, World b2world)
+		{
+			this.level = level;
+			this.b2world = b2world;
+		}
+	}
+	
+	/**
+	 * starts loading the current level of the campaign, or the start of
+	 * the endless level, on the worker thread. The game world is not
+	 * updated until the level has been handed over.
+	 */
 	private void initLevel()
 	{
-		score = 0;
+		goalReached = false;
+		//the carrots of the last level go back to the pool
+		if(level != null) level.freeCarrots();
+		level = null;
+		//seed the random numbers that are used while the level is built
+		//and played, and start recording the attempt
+		long seed = playingBack ? recording.getSeed() : System.nanoTime();
+		random.setSeed(seed);
+		if(!playingBack)
+		{
+			recording = new InputRecording(seed, tickTime, endlessSeed, 
+					LevelSequence.instance.getCurrentLevelNumber(), lives, score);
+		}
+		final String filename = LevelSequence.instance.getCurrentLevel();
+		loadingLevel = levelLoader.submit(new AsyncTask<LoadedLevel>()
+		{
+			@Override
+			public LoadedLevel call() throws Exception
+			{
+				//parse or generate the level and build its physics world
+				Level level;
+				if(endlessSeed != null)
+				{
+					level = new EndlessLevel(new LevelGenerator(endlessSeed), random);
+				}
+				else
+				{
+					level = new Level(LevelSequence.instance.load(filename), random);
+				}
+				return new LoadedLevel(level, initPhysics(level));
+			}
+		});
+	}
+	
+	/**
+	 * takes over a level from the worker thread it was loaded on
+	 * @param loaded
+	 */
+	private void onLevelLoaded(LoadedLevel loaded)
+	{
+		if(b2world != null) b2world.dispose();
+		freeRockBodies.clear();
+		//the carrots get new bodies in the new world when they are used
+		for(Carrot carrot : allCarrots)
+		{
+			carrot.body = null;
+		}
+		b2world = loaded.b2world;
+		level = loaded.level;
+		level.setChunkListener(this);
+		level.setCarrotPool(carrotPool);
+		playerContacts.reset();
+		b2world.setContactListener(playerContacts);
+		cameraHelper.setTarget(level.bunnyHead);
+		level.saveState();
+		accumulator = 0;
+		levelSnapshot = level.snapshot();
+		levelStartScore = score;
+		tickCount = 0;
+		recording.addKeyframe(captureKeyframe());
+		if(endlessSeed != null) return;
+		Gdx.app.debug(TAG, "level '" + LevelSequence.instance.getCurrentLevel() + "' loaded");
+		//get the next level ready while this one is played
+		LevelSequence.instance.prefetchNextLevel();
+	}
+	
+	/**
+	 * returns true while the level is being built
+	 * @return
+	 */
+	public boolean isLoading()
+	{
+		return loadingLevel != null;
+	}
+	
+	/**
+	 * puts the level back to the way it was right after loading,
+	 * without loading the level or building the physics world again
+	 */
+	private void restoreLevel()
+	{
+		score = levelStartScore;
 		scoreVisual = score;
 		goalReached = false;
-		level = new Level(Constants.LEVEL_01);
+		restoreSnapshot(levelSnapshot);
+		resetPlayerBodies();
 		cameraHelper.setTarget(level.bunnyHead);
-		initPhysics();
 	}
 	
-	private void initPhysics()
+	/**
+	 * puts the level back into the state of a snapshot. The origin of
+	 * the world is moved back to where it was when the snapshot was
+	 * taken first, so the restored state plays out the same again.
+	 * @param snapshot
+	 */
+	private void restoreSnapshot(LevelSnapshot snapshot)
 	{
-		if(b2world != null) b2world.dispose();
-		b2world = new World(new Vector2(0, -9.81f), true);
-		//Rocks
-		Vector2 origin = new Vector2();
-		for(Rock rock : level.rocks)
-		{
-			BodyDef bodyDef = new BodyDef();
-			bodyDef.type = BodyType.KinematicBody;
-			bodyDef.position.set(rock.position);
-			Body body = b2world.createBody(bodyDef);
-			rock.body = body;
-			PolygonShape polygonShape = new PolygonShape();
-			origin.x = rock.bounds.width / 2.0f;
-			origin.y = rock.bounds.height / 2.0f;
-			polygonShape.setAsBox(rock.bounds.width / 2.0f, rock.bounds.height / 2.0f, origin, 0);
-			FixtureDef fixtureDef = new FixtureDef();
-			fixtureDef.shape = polygonShape;
-			body.createFixture(fixtureDef);
-			polygonShape.dispose();
-		}
-	}
-	
-	public void update(float deltaTime)
-	{
-		handleDebugInput(deltaTime);
+		shiftOrigin(snapshot.originColumn - level.getOriginColumn());
+		level.restore(snapshot);
+	}
+	
+	/**
+	 * moves the origin of the world columns to the right, along with
+	 * the level, the bodies in it and the camera
+	 * @param columns
+	 */
+	private void shiftOrigin(int columns)
+	{
+		if(columns == 0) return;
+		level.shiftOrigin(columns);
+		cameraHelper.shiftOrigin(columns);
+		Gdx.app.debug(TAG, "Origin moved to column " + level.getOriginColumn());
+	}
+	
+	/**
+	 * builds the physics world of a level
+	 * @param level
+	 * @return
+	 */
+	private World initPhysics(Level level)
+	{
+		World b2world = new World(new Vector2(0, -9.81f), true);
+		//Rocks get their bodies as they enter the active area
+		if(Constants.BOX2D_PLAYER)
+		{
+			createBunnyBody(b2world, level.bunnyHead);
+			for(GoldCoin goldCoin : level.goldCoins)
+			{
+				createItemBody(b2world, goldCoin);
+			}
+			for(Feather feather : level.feathers)
+			{
+				createItemBody(b2world, feather);
+			}
+			if(level.goal != null) createGoalBody(b2world, level.goal);
+		}
+		return b2world;
+	}
+	
+	/**
+	 * gives a rock that entered the active area its body, a free one
+	 * if there is any
+	 * @param rock
+	 */
+	private void createRockBody(Rock rock)
+	{
+		Body body;
+		if(freeRockBodies.size > 0)
+		{
+			body = freeRockBodies.pop();
+			body.setTransform(rock.position, 0);
+			body.setActive(true);
+		}
+		else
+		{
+			//the bodies follow the rocks' floating, so whatever rests
+			//on a rock moves along with it
+			rockBodyDef.type = BodyType.KinematicBody;
+			rockBodyDef.position.set(rock.position);
+			body = b2world.createBody(rockBodyDef);
+		}
+		rock.body = body;
+		rockOrigin.x = rock.bounds.width / 2.0f;
+		rockOrigin.y = rock.bounds.height / 2.0f;
+		rockShape.setAsBox(rock.bounds.width / 2.0f, rock.bounds.height / 2.0f, rockOrigin, 0);
+		rockFixtureDef.shape = rockShape;
+		body.createFixture(rockFixtureDef).setUserData(rock);
+	}
+	
+	/**
+	 * creates the body of the bunny head. The body only collides with
+	 * rocks and items, its velocity is set by the bunny head every
+	 * frame, and gravity is left to the bunny head's own motion so the
+	 * jumps feel the same as without a body. A sensor under its feet
+	 * tells when it is standing on a rock.
+	 * @param b2world
+	 * @param bunnyHead
+	 */
+	private void createBunnyBody(World b2world, BunnyHead bunnyHead)
+	{
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyType.DynamicBody;
+		bodyDef.position.set(bunnyHead.position);
+		bodyDef.fixedRotation = true;
+		bodyDef.gravityScale = 0;
+		Body body = b2world.createBody(bodyDef);
+		bunnyHead.body = body;
+		
+		float halfWidth = bunnyHead.bounds.width / 2.0f;
+		float halfHeight = bunnyHead.bounds.height / 2.0f;
+		PolygonShape polygonShape = new PolygonShape();
+		polygonShape.setAsBox(halfWidth, halfHeight, new Vector2(halfWidth, halfHeight), 0);
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.shape = polygonShape;
+		fixtureDef.density = 1;
+		fixtureDef.friction = 0;
+		fixtureDef.filter.categoryBits = PlayerContacts.CATEGORY_BUNNY;
+		fixtureDef.filter.maskBits = PlayerContacts.CATEGORY_ROCK | PlayerContacts.CATEGORY_ITEM;
+		body.createFixture(fixtureDef).setUserData(bunnyHead);
+		
+		//foot sensor, a thin strip along the bottom edge
+		polygonShape.setAsBox(halfWidth * 0.8f, 0.05f, new Vector2(halfWidth, 0), 0);
+		fixtureDef.isSensor = true;
+		fixtureDef.filter.maskBits = PlayerContacts.CATEGORY_ROCK;
+		body.createFixture(fixtureDef).setUserData(PlayerContacts.FOOT);
+		polygonShape.dispose();
+	}
+	
+	/**
+	 * creates a static sensor body for a gold coin or feather
+	 * @param b2world
+	 * @param item
+	 */
+	private void createItemBody(World b2world, AbstractGameObject item)
+	{
+		itemBodyDef.type = BodyType.StaticBody;
+		itemBodyDef.position.set(item.position);
+		Body body = b2world.createBody(itemBodyDef);
+		item.body = body;
+		itemOrigin.x = item.bounds.width / 2.0f;
+		itemOrigin.y = item.bounds.height / 2.0f;
+		itemShape.setAsBox(item.bounds.width / 2.0f, item.bounds.height / 2.0f, itemOrigin, 0);
+		itemFixtureDef.shape = itemShape;
+		itemFixtureDef.isSensor = true;
+		itemFixtureDef.filter.categoryBits = PlayerContacts.CATEGORY_ITEM;
+		itemFixtureDef.filter.maskBits = PlayerContacts.CATEGORY_BUNNY;
+		body.createFixture(itemFixtureDef).setUserData(item);
+	}
+	
+	/**
+	 * creates the sensor body of the goal. It reaches far up, just
+	 * like the goal's bounds.
+	 * @param b2world
+	 * @param goal
+	 */
+	private void createGoalBody(World b2world, Goal goal)
+	{
+		itemBodyDef.type = BodyType.StaticBody;
+		itemBodyDef.position.set(goal.position);
+		Body body = b2world.createBody(itemBodyDef);
+		goal.body = body;
+		float height = 100.0f;
+		itemOrigin.x = goal.bounds.x + goal.bounds.width / 2.0f;
+		itemOrigin.y = height / 2.0f;
+		itemShape.setAsBox(goal.bounds.width / 2.0f, height / 2.0f, itemOrigin, 0);
+		itemFixtureDef.shape = itemShape;
+		itemFixtureDef.isSensor = true;
+		itemFixtureDef.filter.categoryBits = PlayerContacts.CATEGORY_ITEM;
+		itemFixtureDef.filter.maskBits = PlayerContacts.CATEGORY_BUNNY;
+		body.createFixture(itemFixtureDef).setUserData(goal);
+	}
+	
+	private void destroyBody(AbstractGameObject obj)
+	{
+		if(obj.body == null) return;
+		b2world.destroyBody(obj.body);
+		obj.body = null;
+	}
+	
+	/**
+	 * moves the bodies of the bunny head and the goal back to their
+	 * objects after they have been placed without the physics world
+	 */
+	private void resetPlayerBodies()
+	{
+		BunnyHead bunnyHead = level.bunnyHead;
+		if(bunnyHead.body != null)
+		{
+			bunnyHead.body.setTransform(bunnyHead.position, 0);
+			bunnyHead.body.setLinearVelocity(0, 0);
+		}
+		Goal goal = level.goal;
+		if(goal != null && goal.body != null) goal.body.setTransform(goal.position, 0);
+		playerContacts.clear();
+	}
+	
+	/**
+	 * takes the body of a rock that left the active area and keeps it
+	 * for the next rock that enters it. The fixture is removed, since
+	 * its size depends on the rock.
+	 * @param rock
+	 */
+	private void freeRockBody(Rock rock)
+	{
+		Body body = rock.body;
+		rock.body = null;
+		body.destroyFixture(body.getFixtureList().first());
+		body.setLinearVelocity(0, 0);
+		body.setActive(false);
+		freeRockBodies.add(body);
+	}
+	
+	@Override
+	public void onRockEntered(Rock rock)
+	{
+		createRockBody(rock);
+	}
+	
+	@Override
+	public void onRockLeft(Rock rock)
+	{
+		freeRockBody(rock);
+	}
+	
+	@Override
+	public void onGoldCoinLoaded(GoldCoin goldCoin)
+	{
+		if(Constants.BOX2D_PLAYER) createItemBody(b2world, goldCoin);
+	}
+	
+	@Override
+	public void onGoldCoinUnloaded(GoldCoin goldCoin)
+	{
+		destroyBody(goldCoin);
+	}
+	
+	@Override
+	public void onFeatherLoaded(Feather feather)
+	{
+		if(Constants.BOX2D_PLAYER) createItemBody(b2world, feather);
+	}
+	
+	@Override
+	public void onFeatherUnloaded(Feather feather)
+	{
+		destroyBody(feather);
+	}
+	
+	/**
+	 * sets how many ticks the simulation runs per second
+	 * @param tickRate
+	 */
+	public void setTickRate(int tickRate)
+	{
+		tickTime = 1.0f / tickRate;
+	}
+	
+	/**
+	 * returns how far the time of the current frame is between the
+	 * previous and the current tick, 0 at the previous tick and 1 at
+	 * the current one
+	 * @return
+	 */
+	public float getTickAlpha()
+	{
+		return Math.min(1, accumulator / tickTime);
+	}
+	
+	/**
+	 * advances the game world by the time of a frame. The simulation
+	 * runs in ticks of a fixed length, so it behaves the same at any
+	 * frame rate. Time that doesn't make up a whole tick is carried
+	 * over to the next frame, and after a long frame at most
+	 * SIMULATION_MAX_STEPS ticks are run and the rest is dropped.
+	 * @param deltaTime
+	 * @param keys the keys held down, from sampleKeys()
+	 */
+	public void update(float deltaTime, int keys)
+	{
+		if(loadingLevel != null)
+		{
+			//keep the screen responsive until the level is ready
+			if(!loadingLevel.isDone()) return;
+			LoadedLevel loaded = loadingLevel.get();
+			loadingLevel = null;
+			onLevelLoaded(loaded);
+		}
+		accumulator += deltaTime;
+		int steps = 0;
+		while(accumulator >= tickTime && steps < Constants.SIMULATION_MAX_STEPS)
+		{
+			accumulator -= tickTime;
+			steps++;
+			tick(tickTime, keys);
+			//the next level is being loaded, or the game is over
+			if(isLoading() || leftGame) return;
+		}
+		if(accumulator >= tickTime) accumulator %= tickTime;
+	}
+	
+	/**
+	 * reads the keys that are held down. Must be called on the render
+	 * thread, the keys are handed to update().
+	 * @return
+	 */
+	public int sampleKeys()
+	{
+		int keys = 0;
+		if(Gdx.input.isKeyPressed(Keys.LEFT)) keys |= KEY_LEFT;
+		if(Gdx.input.isKeyPressed(Keys.RIGHT)) keys |= KEY_RIGHT;
+		if(Gdx.input.isKeyPressed(Keys.UP)) keys |= KEY_UP;
+		if(Gdx.input.isKeyPressed(Keys.DOWN)) keys |= KEY_DOWN;
+		if(Gdx.input.isTouched() || Gdx.input.isKeyPressed(Keys.SPACE)) keys |= KEY_JUMP;
+		if(Gdx.input.isKeyPressed(Keys.SHIFT_LEFT)) keys |= KEY_SHIFT;
+		if(Gdx.input.isKeyPressed(Keys.BACKSPACE)) keys |= KEY_BACKSPACE;
+		if(Gdx.input.isKeyPressed(Keys.COMMA)) keys |= KEY_COMMA;
+		if(Gdx.input.isKeyPressed(Keys.PERIOD)) keys |= KEY_PERIOD;
+		if(Gdx.input.isKeyPressed(Keys.SLASH)) keys |= KEY_SLASH;
+		return keys;
+	}
+	
+	/**
+	 * writes what is drawn of the game world at the current tick to a
+	 * render state. Runs on the same thread as update(), the renderer
+	 * reads only the state.
+	 * @param state
+	 */
+	public void writeRenderState(RenderState state)
+	{
+		state.clear();
+		state.alpha = getTickAlpha();
+		state.loading = isLoading();
+		state.gameOver = isGameOver();
+		state.score = score;
+		state.scoreVisual = scoreVisual;
+		state.lives = lives;
+		state.livesVisual = livesVisual;
+		if(isLoading()) return;
+		
+		state.lastCameraPosition.set(cameraHelper.getRenderPosition(0));
+		state.cameraPosition.set(cameraHelper.getPosition());
+		state.cameraZoom = cameraHelper.getZoom();
+		state.timeLeftFeatherPowerup = level.bunnyHead.timeLeftFeatherPowerup;
+		level.mountains.updateScrollPosition(state.lastCameraPosition, state.cameraPosition, 
+				cameraHelper.getViewportWidth());
+		level.render(state, cameraHelper.getVisibleArea(1, visibleArea));
+	}
+	
+	/**
+	 * advances the game world by one tick
+	 * @param deltaTime
+	 * @param keys
+	 */
+	private void tick(float deltaTime, int keys)
+	{
+		int input = nextInput(keys);
+		handleDebugInput(deltaTime, keys);
 		if(isGameOver() || goalReached)
 		{
 			timeLeftGameOverDelay -= deltaTime;
-			if(timeLeftGameOverDelay < 0) backToMenu();
+			if(timeLeftGameOverDelay < 0)
+			{
+				if(goalReached && !isGameOver() && endlessSeed == null && LevelSequence.instance.hasNextLevel())
+				{
+					//continue with the next level of the campaign
+					LevelSequence.instance.nextLevel();
+					//a recording covers one level, the next one is played
+					playingBack = false;
+					initLevel();
+					return;
+				}
+				backToMenu();
+			}
 		}
 		else
 		{
-			handleInputGame(deltaTime);
+			handleInputGame(input);
 		}
+		bunnyStart.set(level.bunnyHead.position);
+		updateActiveArea();
 		level.update(deltaTime);
-		testCollisions();
-		b2world.step(deltaTime, 8, 3);
+		if(Constants.BOX2D_PLAYER)
+		{
+			b2world.step(deltaTime, 8, 3);
+			handlePlayerContacts();
+		}
+		else
+		{
+			testCollisions();
+			b2world.step(deltaTime, 8, 3);
+		}
 		cameraHelper.update(deltaTime);
+		//keep the player close to the origin of the world
+		if(Math.abs(level.bunnyHead.position.x) > Constants.ORIGIN_SHIFT_DISTANCE)
+		{
+			shiftOrigin(MathUtils.floor(level.bunnyHead.position.x));
+		}
+		updateLevelChunks();
 		if(!isGameOver() && isPlayerInWater())
 		{
-			AudioManager.instance.play(Assets.instance.sounds.liveLost);
+			AudioManager.instance.queue(Assets.instance.sounds.liveLost);
 			lives--;
 			if(isGameOver())
 			{
@@ -125,10 +688,9 @@ public class WorldController extends InputAdapter implements Disposable
 			}
 			else
 			{
-				initLevel();
+				restoreLevel();
 			}
 		}
-		level.mountains.updateScrollPosition(cameraHelper.getPosition());
 		if(livesVisual > lives)
 		{
 			livesVisual = Math.max(lives,  livesVisual - 1 * deltaTime);
@@ -138,9 +700,228 @@ public class WorldController extends InputAdapter implements Disposable
 		{
 			scoreVisual = Math.min(scoreVisual,  scoreVisual + 250 * deltaTime);
 		}
+		
+		tickCount++;
+		int keyframeInterval = Math.max(1, Math.round(Constants.REPLAY_KEYFRAME_INTERVAL / tickTime));
+		if(tickCount % keyframeInterval == 0) recording.addKeyframe(captureKeyframe());
 	}
 	
-	private void handleDebugInput(float deltaTime)
+	/**
+	 * returns the input of the current tick, from the recording while
+	 * it is played back and from the player otherwise. The player's
+	 * input is added to the recording.
+	 * @param keys
+	 * @return
+	 */
+	private int nextInput(int keys)
+	{
+		if(playingBack && tickCount >= recording.getLength())
+		{
+			//the player takes over where the recording ends
+			playingBack = false;
+			Gdx.app.log(TAG, "Playback finished");
+		}
+		if(playingBack) return recording.getInput(tickCount);
+		int input = readInput(keys);
+		recording.truncate(tickCount);
+		recording.record(input);
+		return input;
+	}
+	
+	/**
+	 * turns the keys into the player's input
+	 * @param keys
+	 * @return
+	 */
+	private int readInput(int keys)
+	{
+		//No control while the camera doesn't follow the bunny head
+		if(!cameraHelper.hasTarget(level.bunnyHead)) return 0;
+		int input = InputRecording.INPUT_CONTROL;
+		if((keys & KEY_LEFT) != 0)
+		{
+			input |= InputRecording.INPUT_LEFT;
+		}
+		else if((keys & KEY_RIGHT) != 0)
+		{
+			input |= InputRecording.INPUT_RIGHT;
+		}
+		else if(Gdx.app.getType() != ApplicationType.Desktop)
+		{
+			//Execute auto-forward movement on non-desktop platform
+			input |= InputRecording.INPUT_RIGHT;
+		}
+		if((keys & KEY_JUMP) != 0)
+		{
+			input |= InputRecording.INPUT_JUMP;
+		}
+		return input;
+	}
+	
+	/**
+	 * captures the state of the game world at the current tick
+	 * @return
+	 */
+	private ReplayKeyframe captureKeyframe()
+	{
+		ReplayKeyframe keyframe = new ReplayKeyframe();
+		keyframe.tick = tickCount;
+		keyframe.levelSnapshot = level.snapshot();
+		keyframe.levelTime = level.getTime();
+		keyframe.cloudsTime = level.clouds.stateTime;
+		keyframe.randomState0 = random.getState(0);
+		keyframe.randomState1 = random.getState(1);
+		keyframe.lives = lives;
+		keyframe.score = score;
+		keyframe.livesVisual = livesVisual;
+		keyframe.scoreVisual = scoreVisual;
+		keyframe.levelStartScore = levelStartScore;
+		keyframe.goalReached = goalReached;
+		keyframe.timeLeftGameOverDelay = timeLeftGameOverDelay;
+		keyframe.cameraPosition.set(cameraHelper.getPosition());
+		return keyframe;
+	}
+	
+	/**
+	 * puts the game world back into the state of a keyframe
+	 * @param keyframe
+	 */
+	private void restoreKeyframe(ReplayKeyframe keyframe)
+	{
+		tickCount = keyframe.tick;
+		random.setState(keyframe.randomState0, keyframe.randomState1);
+		lives = keyframe.lives;
+		score = keyframe.score;
+		livesVisual = keyframe.livesVisual;
+		scoreVisual = keyframe.scoreVisual;
+		levelStartScore = keyframe.levelStartScore;
+		goalReached = keyframe.goalReached;
+		timeLeftGameOverDelay = keyframe.timeLeftGameOverDelay;
+		//the clock first, the rocks are placed by it
+		level.setTime(keyframe.levelTime);
+		level.clouds.stateTime = keyframe.cloudsTime;
+		restoreSnapshot(keyframe.levelSnapshot);
+		resetPlayerBodies();
+		cameraHelper.setTarget(level.bunnyHead);
+		cameraHelper.setPosition(keyframe.cameraPosition.x, keyframe.cameraPosition.y);
+	}
+	
+	/**
+	 * plays a recording back from its start. The recorded level is
+	 * loaded again and the player takes over where the recording ends.
+	 * @param recording
+	 */
+	public void startPlayback(InputRecording recording)
+	{
+		if(isLoading()) return;
+		this.recording = recording;
+		playingBack = true;
+		tickTime = recording.getTickTime();
+		endlessSeed = recording.getEndlessSeed();
+		lives = recording.getLives();
+		livesVisual = lives;
+		score = recording.getScore();
+		scoreVisual = score;
+		timeLeftGameOverDelay = 0;
+		LevelSequence.instance.start(recording.getLevelNumber());
+		initLevel();
+	}
+	
+	/**
+	 * jumps to a point in time of the current recording. The keyframe
+	 * before it is restored and the ticks from there are simulated
+	 * without being drawn. From there on the recording is played back
+	 * until its end.
+	 * @param time seconds since the level was loaded
+	 */
+	public void seek(float time)
+	{
+		if(isLoading()) return;
+		int target = MathUtils.clamp(Math.round(time / tickTime), 0, recording.getLength());
+		ReplayKeyframe keyframe = recording.getKeyframe(target);
+		if(keyframe == null) return;
+		restoreKeyframe(keyframe);
+		playingBack = true;
+		AudioManager.instance.setMuted(true);
+		while(tickCount < target && !isLoading() && !leftGame)
+		{
+			//the recording holds the input, there are no keys
+			tick(tickTime, 0);
+		}
+		AudioManager.instance.setMuted(false);
+		if(!isLoading()) level.saveState();
+		accumulator = 0;
+		Gdx.app.debug(TAG, "Jumped to " + tickCount * tickTime + "s of " + recording.getDuration() + "s");
+	}
+	
+	/**
+	 * returns the time since the level was loaded
+	 * @return
+	 */
+	public float getTime()
+	{
+		return tickCount * tickTime;
+	}
+	
+	/**
+	 * writes the recording of the current attempt to a local file
+	 * @param file
+	 */
+	private void saveRecording(FileHandle file)
+	{
+		try
+		{
+			file.parent().mkdirs();
+			recording.write(file);
+			Gdx.app.log(TAG, "Recording of " + recording.getDuration() + "s saved to '" + file + "'");
+		}
+		catch(IOException e)
+		{
+			Gdx.app.error(TAG, "Couldn't save recording to '" + file + "'", e);
+		}
+	}
+	
+	/**
+	 * reads a recording from a local file and plays it back
+	 * @param file
+	 */
+	private void loadRecording(FileHandle file)
+	{
+		if(!file.exists()) return;
+		try
+		{
+			startPlayback(InputRecording.read(file));
+		}
+		catch(IOException e)
+		{
+			Gdx.app.error(TAG, "Couldn't read recording from '" + file + "'", e);
+		}
+	}
+	
+	/**
+	 * updates the objects the camera sees, plus a margin, and lets
+	 * the others sleep
+	 */
+	private void updateActiveArea()
+	{
+		float halfWidth = cameraHelper.getViewportWidth() / 2.0f + Constants.ACTIVE_AREA_MARGIN;
+		float halfHeight = cameraHelper.getViewportHeight() / 2.0f + Constants.ACTIVE_AREA_MARGIN;
+		Vector2 cameraPosition = cameraHelper.getPosition();
+		level.setActiveArea(cameraPosition.x - halfWidth, cameraPosition.y - halfHeight, 
+				halfWidth * 2, halfHeight * 2);
+	}
+	
+	/**
+	 * streams the level chunks around the camera
+	 */
+	private void updateLevelChunks()
+	{
+		float halfWidth = cameraHelper.getViewportWidth() / 2.0f;
+		float cameraX = cameraHelper.getPosition().x;
+		level.updateChunks(cameraX - halfWidth, cameraX + halfWidth);
+	}
+	
+	private void handleDebugInput(float deltaTime, int keys)
 	{
 		if(Gdx.app.getType() != ApplicationType.Desktop) return;
 		
@@ -149,21 +930,21 @@ public class WorldController extends InputAdapter implements Disposable
 			//Camera Controls (move)
 			float camMoveSpeed = 5 * deltaTime;
 			float camMoveSpeedAccelerationFactor = 5;
-			if(Gdx.input.isKeyPressed(Keys.SHIFT_LEFT)) camMoveSpeed *= camMoveSpeedAccelerationFactor;
-			if(Gdx.input.isKeyPressed(Keys.LEFT)) moveCamera(-camMoveSpeed, 0);
-			if(Gdx.input.isKeyPressed(Keys.RIGHT)) moveCamera(camMoveSpeed, 0);
-			if(Gdx.input.isKeyPressed(Keys.UP)) moveCamera(0, camMoveSpeed);
-			if(Gdx.input.isKeyPressed(Keys.DOWN)) moveCamera(0, -camMoveSpeed);
-			if(Gdx.input.isKeyPressed(Keys.BACKSPACE)) cameraHelper.setPosition(0, 0);
+			if((keys & KEY_SHIFT) != 0) camMoveSpeed *= camMoveSpeedAccelerationFactor;
+			if((keys & KEY_LEFT) != 0) moveCamera(-camMoveSpeed, 0);
+			if((keys & KEY_RIGHT) != 0) moveCamera(camMoveSpeed, 0);
+			if((keys & KEY_UP) != 0) moveCamera(0, camMoveSpeed);
+			if((keys & KEY_DOWN) != 0) moveCamera(0, -camMoveSpeed);
+			if((keys & KEY_BACKSPACE) != 0) cameraHelper.setPosition(0, 0);
 		}
 		
 		//Camera Controls (zoom)
 		float camZoomSpeed = 1 * deltaTime;
 		float camZoomSpeedAccelerationFactor = 5;
-		if(Gdx.input.isKeyPressed(Keys.SHIFT_LEFT)) camZoomSpeed *= camZoomSpeedAccelerationFactor;
-		if(Gdx.input.isKeyPressed(Keys.COMMA)) cameraHelper.addZoom(camZoomSpeed);
-		if(Gdx.input.isKeyPressed(Keys.PERIOD)) cameraHelper.addZoom(-camZoomSpeed);
-		if(Gdx.input.isKeyPressed(Keys.SLASH)) cameraHelper.setZoom(1);
+		if((keys & KEY_SHIFT) != 0) camZoomSpeed *= camZoomSpeedAccelerationFactor;
+		if((keys & KEY_COMMA) != 0) cameraHelper.addZoom(camZoomSpeed);
+		if((keys & KEY_PERIOD) != 0) cameraHelper.addZoom(-camZoomSpeed);
+		if((keys & KEY_SLASH) != 0) cameraHelper.setZoom(1);
 	}
 	
 	private void moveCamera(float x, float y)
@@ -176,6 +957,16 @@ public class WorldController extends InputAdapter implements Disposable
 	@Override
 	public boolean keyUp(int keycode)
 	{
+		//Back to Menu
+		if(keycode == Keys.ESCAPE || keycode == Keys.BACK)
+		{
+			backToMenu();
+			return false;
+		}
+		
+		//No game world to control while loading
+		if(isLoading()) return false;
+		
 		//Reset game world
 		if(keycode == Keys.R)
 		{
@@ -190,10 +981,24 @@ public class WorldController extends InputAdapter implements Disposable
 			Gdx.app.debug(TAG, "Camera follow enabled: " + cameraHelper.hasTarget());
 		}
 		
-		//Back to Menu
-		else if(keycode == Keys.ESCAPE || keycode == Keys.BACK)
+		//Save or play back the recording of this attempt
+		else if(keycode == Keys.F5)
 		{
-			backToMenu();
+			saveRecording(Gdx.files.local(Constants.REPLAY_FILE));
+		}
+		else if(keycode == Keys.F6)
+		{
+			loadRecording(Gdx.files.local(Constants.REPLAY_FILE));
+		}
+		
+		//Jump back or ahead in the recording
+		else if(keycode == Keys.PAGE_DOWN)
+		{
+			seek(getTime() - Constants.REPLAY_SEEK_STEP);
+		}
+		else if(keycode == Keys.PAGE_UP)
+		{
+			seek(getTime() + Constants.REPLAY_SEEK_STEP);
 		}
 		return false;
 	}
@@ -235,16 +1040,16 @@ public class WorldController extends InputAdapter implements Disposable
 	
 	private void onCollisionBunnyWithGoldCoin(GoldCoin goldcoin)
 	{
-		goldcoin.collected = true;
-		AudioManager.instance.play(Assets.instance.sounds.pickupCoin);
+		level.collect(goldcoin);
+		AudioManager.instance.queue(Assets.instance.sounds.pickupCoin);
 		score += goldcoin.getScore();
 		Gdx.app.log(TAG, "Gold coin collected");
 	}
 	
 	private void onCollisionBunnyWithFeather(Feather feather)
 	{
-		feather.collected = true;
-		AudioManager.instance.play(Assets.instance.sounds.pickupFeather);
+		level.collect(feather);
+		AudioManager.instance.queue(Assets.instance.sounds.pickupFeather);
 		score += feather.getScore();
 		level.bunnyHead.setFeatherPowerup(true);
 		Gdx.app.log(TAG, "Feather collectd");
@@ -252,6 +1057,15 @@ public class WorldController extends InputAdapter implements Disposable
 	
 	private void onCollisionBunnyWithGoal()
 	{
+		if(level.advanceGoal())
+		{
+			//endless mode: the goal is a milestone, the run goes on
+			if(level.goal.body != null) level.goal.body.setTransform(level.goal.position, 0);
+			AudioManager.instance.queue(Assets.instance.sounds.pickupFeather);
+			score += Constants.ENDLESS_GOAL_SCORE;
+			Gdx.app.log(TAG, "Goal passed");
+			return;
+		}
 		goalReached = true;
 		timeLeftGameOverDelay = Constants.TIME_DELAY_GAME_FINISHED;
 		Vector2 centerPosBunnyHead = new Vector2(level.bunnyHead.position);
@@ -261,11 +1075,17 @@ public class WorldController extends InputAdapter implements Disposable
 	
 	private void testCollisions()
 	{
-		r1.set(level.bunnyHead.position.x, level.bunnyHead.position.y,
-				level.bunnyHead.bounds.width, level.bunnyHead.bounds.height);
+		BunnyHead bunnyHead = level.bunnyHead;
+		
+		//Sweep Bunny Head -> Rocks, so a long frame can't carry it
+		//through a rock
+		sweepRocks(bunnyHead);
+		
+		r1.set(bunnyHead.position.x, bunnyHead.position.y,
+				bunnyHead.bounds.width, bunnyHead.bounds.height);
 		
 		//Test collision: Bunny Head <-> Rocks
-		for(Rock rock: level.rocks)
+		for(Rock rock: level.rockGrid.query(r1, nearbyRocks))
 		{
 			r2.set(rock.position.x, rock.position.y, rock.bounds.width, rock.bounds.height);
 			if(!r1.overlaps(r2)) continue;
@@ -274,23 +1094,30 @@ public class WorldController extends InputAdapter implements Disposable
 			//edge testing on rocks.
 		}
 		
+		//Items are swept from the start of the frame to where the rocks
+		//left the bunny head, so none are skipped
+		float dx = bunnyHead.position.x - bunnyStart.x;
+		float dy = bunnyHead.position.y - bunnyStart.y;
+		r1.set(bunnyStart.x, bunnyStart.y, bunnyHead.bounds.width, bunnyHead.bounds.height);
+		SweptCollision.getSweptBounds(r1, dx, dy, sweep);
+		
 		//Test collision: Gunny Head <-> Gold Coins
-		for(GoldCoin goldcoin: level.goldCoins)
+		for(GoldCoin goldcoin: level.goldCoinGrid.query(sweep, nearbyGoldCoins))
 		{
 			if(goldcoin.collected) continue;
 			r2.set(goldcoin.position.x, goldcoin.position.y,
 					goldcoin.bounds.width, goldcoin.bounds.height);
-			if(!r1.overlaps(r2)) continue;
+			if(SweptCollision.timeOfImpact(r1, dx, dy, r2, impactNormal) > 1) continue;
 			onCollisionBunnyWithGoldCoin(goldcoin);
 		}
 		
 		//Test collision: Bunny Head <-> Feathers
-		for(Feather feather: level.feathers)
+		for(Feather feather: level.featherGrid.query(sweep, nearbyFeathers))
 		{
 			if(feather.collected) continue;
 			r2.set(feather.position.x, feather.position.y,
 					feather.bounds.width, feather.bounds.height);
-			if(!r1.overlaps(r2)) continue;
+			if(SweptCollision.timeOfImpact(r1, dx, dy, r2, impactNormal) > 1) continue;
 			onCollisionBunnyWithFeather(feather);
 		}
 		
@@ -300,34 +1127,116 @@ public class WorldController extends InputAdapter implements Disposable
 			r2.set(level.goal.bounds);
 			r2.x += level.goal.position.x;
 			r2.y += level.goal.position.y;
-			if(r1.overlaps(r2)) onCollisionBunnyWithGoal();
+			if(SweptCollision.timeOfImpact(r1, dx, dy, r2, impactNormal) <= 1) onCollisionBunnyWithGoal();
 		}
 	}
 	
-	private void handleInputGame(float deltaTime)
+	/**
+	 * moves the bunny head back to where it first hits a rock during
+	 * the frame, IMPACT_DEPTH into the rock so the overlap test handles
+	 * the hit just like on a short frame. Only the axis that hit the
+	 * rock is moved back, so the bunny head keeps sliding along it. The
+	 * rest of the motion on the other axis is swept again from the
+	 * point of the hit, so a wall behind a floor is hit as well.
+	 * @param bunnyHead
+	 */
+	private void sweepRocks(BunnyHead bunnyHead)
 	{
-		if(cameraHelper.hasTarget(level.bunnyHead))
+		float startX = bunnyStart.x;
+		float startY = bunnyStart.y;
+		float dx = bunnyHead.position.x - startX;
+		float dy = bunnyHead.position.y - startY;
+		//one pass per axis, every hit stops the motion on one of them
+		for(int pass = 0; pass < 2; pass++)
 		{
-			//Player Movement
-			if(Gdx.input.isKeyPressed(Keys.LEFT))
+			if(dx == 0 && dy == 0) return;
+			r1.set(startX, startY, bunnyHead.bounds.width, bunnyHead.bounds.height);
+			SweptCollision.getSweptBounds(r1, dx, dy, sweep);
+			
+			//earliest hit of a rock the bunny head did not already overlap
+			float firstImpact = 1;
+			boolean hitSide = false;
+			for(Rock rock: level.rockGrid.query(sweep, nearbyRocks))
 			{
-				level.bunnyHead.velocity.x = -level.bunnyHead.terminalVelocity.x;
+				r2.set(rock.position.x, rock.position.y, rock.bounds.width, rock.bounds.height);
+				float timeOfImpact = SweptCollision.timeOfImpact(r1, dx, dy, r2, impactNormal);
+				if(timeOfImpact < 0 || timeOfImpact >= firstImpact) continue;
+				firstImpact = timeOfImpact;
+				hitSide = impactNormal.x != 0;
 			}
-			else if(Gdx.input.isKeyPressed(Keys.RIGHT))
+			if(firstImpact >= 1) return;
+			
+			if(hitSide)
 			{
-				level.bunnyHead.velocity.x = level.bunnyHead.terminalVelocity.x;
+				float t = Math.min(1, firstImpact + IMPACT_DEPTH / Math.abs(dx));
+				bunnyHead.position.x = startX + dx * t;
+				//go on along y from the hit, the x axis is done
+				startX = bunnyHead.position.x;
+				startY += dy * firstImpact;
+				dx = 0;
+				dy = bunnyHead.position.y - startY;
 			}
 			else
 			{
-				//Execute auto-forward movement on non-desktop platform
-				if(Gdx.app.getType() != ApplicationType.Desktop)
-				{
-					level.bunnyHead.velocity.x = level.bunnyHead.terminalVelocity.x;
-				}
+				float t = Math.min(1, firstImpact + IMPACT_DEPTH / Math.abs(dy));
+				bunnyHead.position.y = startY + dy * t;
+				//go on along x from the hit, the y axis is done
+				startX += dx * firstImpact;
+				startY = bunnyHead.position.y;
+				dx = bunnyHead.position.x - startX;
+				dy = 0;
+			}
+		}
+	}
+	
+	/**
+	 * handles what the bunny head's body touched during the last step
+	 * of the physics world, in place of testCollisions()
+	 */
+	private void handlePlayerContacts()
+	{
+		BunnyHead bunnyHead = level.bunnyHead;
+		bunnyHead.position.set(bunnyHead.body.getPosition());
+		
+		//Landed on a rock
+		if(playerContacts.isOnGround() && (bunnyHead.jumpState == JUMP_STATE.FALLING
+				|| bunnyHead.jumpState == JUMP_STATE.JUMP_FALLING))
+		{
+			bunnyHead.jumpState = JUMP_STATE.GROUNDED;
+		}
+		
+		for(GoldCoin goldcoin : playerContacts.goldCoins)
+		{
+			if(!goldcoin.collected) onCollisionBunnyWithGoldCoin(goldcoin);
+		}
+		for(Feather feather : playerContacts.feathers)
+		{
+			if(!feather.collected) onCollisionBunnyWithFeather(feather);
+		}
+		if(playerContacts.goalReached && !goalReached) onCollisionBunnyWithGoal();
+		playerContacts.clear();
+	}
+	
+	/**
+	 * moves the bunny head by the input of a tick
+	 * @param input
+	 */
+	private void handleInputGame(int input)
+	{
+		if((input & InputRecording.INPUT_CONTROL) != 0)
+		{
+			//Player Movement
+			if((input & InputRecording.INPUT_LEFT) != 0)
+			{
+				level.bunnyHead.velocity.x = -level.bunnyHead.terminalVelocity.x;
+			}
+			else if((input & InputRecording.INPUT_RIGHT) != 0)
+			{
+				level.bunnyHead.velocity.x = level.bunnyHead.terminalVelocity.x;
 			}
 			
 			//Bunny Jump
-			if(Gdx.input.isTouched() || Gdx.input.isKeyPressed(Keys.SPACE))
+			if((input & InputRecording.INPUT_JUMP) != 0)
 			{
 				level.bunnyHead.setJumping(true);
 			}
@@ -353,7 +1262,7 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	public boolean isPlayerInWater()
 	{
-		return level.bunnyHead.position.y < -5;
+		return level.bunnyHead.position.y < Constants.WATER_LEVEL;
 	}
 	
 	/**
@@ -361,47 +1270,78 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	private void backToMenu()
 	{
-		//switch to menu screen
-		game.setScreen(new MenuScreen(game));
+		//switch to menu screen, on the render thread once the frame
+		//is done, since the world may be simulated on another thread
+		leftGame = true;
+		Gdx.app.postRunnable(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				game.setScreen(new MenuScreen(game));
+			}
+		});
 	}
 	
+	/**
+	 * drops celebration carrots around a position. The carrots come
+	 * from the pool, along with their bodies when they were used in
+	 * the same physics world before.
+	 * @param pos
+	 * @param numCarrots
+	 * @param radius
+	 */
 	private void spawnCarrots(Vector2 pos, int numCarrots, float radius)
 	{
 		float carrotShapeScale = 0.5f;
-		//create carrots with box2d body and fixture
+		//set physics attributes
+		carrotBodyDef.type = BodyType.DynamicBody;
+		carrotFixtureDef.shape = carrotShape;
+		carrotFixtureDef.density = 50;
+		carrotFixtureDef.restitution = 0.5f;
+		carrotFixtureDef.friction = 0.5f;
+		//carrots pile up on the rocks, but pass the bunny head and items
+		carrotFixtureDef.filter.categoryBits = PlayerContacts.CATEGORY_CARROT;
+		carrotFixtureDef.filter.maskBits = PlayerContacts.CATEGORY_ROCK | PlayerContacts.CATEGORY_CARROT;
 		for(int i = 0; i < numCarrots; i++)
 		{
-			Carrot carrot = new Carrot();
+			Carrot carrot = carrotPool.obtain();
 			//calculate random spawn position, rotation, and scale
-			float x = MathUtils.random(-radius, radius);
-			float y = MathUtils.random(5.0f, 15.0f);
-			float rotation = MathUtils.random(0.0f, 360.0f) * MathUtils.degreesToRadians;
-			float carrotScale = MathUtils.random(0.5f, 1.5f);
+			float x = -radius + random.nextFloat() * 2 * radius;
+			float y = 5.0f + random.nextFloat() * 10.0f;
+			float rotation = random.nextFloat() * 360.0f * MathUtils.degreesToRadians;
+			float carrotScale = 0.5f + random.nextFloat();
 			carrot.scale.set(carrotScale, carrotScale);
-			//create box2d body for carrot with start position
-			//and angle of rotation
-			BodyDef bodyDef = new BodyDef();
-			bodyDef.position.set(pos);
-			bodyDef.position.add(x, y);
-			bodyDef.angle = rotation;
-			Body body = b2world.createBody(bodyDef);
-			body.setType(BodyType.DynamicBody);
-			carrot.body = body;
+			Body body = carrot.body;
+			if(body == null)
+			{
+				body = b2world.createBody(carrotBodyDef);
+				carrot.body = body;
+			}
+			else
+			{
+				//a pooled carrot brings its body along, only the
+				//fixture has to be made for the new scale
+				body.destroyFixture(body.getFixtureList().first());
+				body.setType(BodyType.DynamicBody);
+				body.setLinearVelocity(0, 0);
+				body.setAngularVelocity(0);
+				body.setActive(true);
+				body.setAwake(true);
+			}
+			//move the body to its start position and angle of rotation
+			body.setTransform(pos.x + x, pos.y + y, rotation);
 			//create rectangular shape for carrot to allow
 			//interactions (collisions) with other objects
-			PolygonShape polygonShape = new PolygonShape();
 			float halfWidth = carrot.bounds.width / 2.0f * carrotScale;
 			float halfHeight = carrot.bounds.height / 2.0f * carrotScale;
-			polygonShape.setAsBox(halfWidth * carrotShapeScale, halfHeight * carrotShapeScale);
-			//set physics attributes
-			FixtureDef fixtureDef = new FixtureDef();
-			fixtureDef.shape = polygonShape;
-			fixtureDef.density = 50;
-			fixtureDef.restitution = 0.5f;
-			fixtureDef.friction = 0.5f;
-			body.createFixture(fixtureDef);
-			polygonShape.dispose();
-			//finally, add new carrot to list for updating/rendering
+			carrotShape.setAsBox(halfWidth * carrotShapeScale, halfHeight * carrotShapeScale);
+			body.createFixture(carrotFixtureDef);
+			//start drawing the carrot where its body is
+			carrot.position.set(body.getPosition());
+			carrot.rotation = rotation * MathUtils.radiansToDegrees;
+			carrot.saveState();
+			//finally, add carrot to list for updating/rendering
 			level.carrots.add(carrot);
 		}
 	}
@@ -409,6 +1349,16 @@ public class WorldController extends InputAdapter implements Disposable
 	@Override
 	public void dispose()
 	{
+		//wait for a level that is still loading and drop it
+		levelLoader.dispose();
+		if(loadingLevel != null)
+		{
+			loadingLevel.get().b2world.dispose();
+			loadingLevel = null;
+		}
 		if(b2world != null) b2world.dispose();
+		rockShape.dispose();
+		itemShape.dispose();
+		carrotShape.dispose();
 	}
 }
\ No newline at end of file
@@ -4,13 +4,18 @@ package world;
  */
 
 import objects.Assets;
+import objects.RenderState;
 import screens.GamePreferences;
+import screens.QualityPreset;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.utils.Disposable;
 import com.lobiancogdx.game.Constants;
@@ -21,8 +26,32 @@ public class WorldRenderer implements Disposable
 	private OrthographicCamera cameraGUI;
 	private SpriteBatch batch;
 	private WorldController worldController;
-	private static final boolean DEBUG_DRAW_BOX2D_WORLD = false;
+	//the debug renderer reads the physics world, so the world can't
+	//be simulated while a frame is drawn when it is on
+	public static final boolean DEBUG_DRAW_BOX2D_WORLD = false;
 	private Box2DDebugRenderer b2debugRenderer;
+	//part of the world the camera sees this frame, plus a margin
+	private final Rectangle visibleArea = new Rectangle();
+	//images of the resident rocks, built again when they change
+	private final RockCache rockCache = new RockCache();
+	//rocks the cache drew in the last frame
+	private int drawnRocks;
+	//draws the game world at a resolution that follows the frame time
+	//when the option is on, the GUI is always drawn at full resolution
+	private final DynamicResolution dynamicResolution = new DynamicResolution();
+	
+	//dust of the player character. It is only decoration, so it is
+	//not part of the simulation. It takes its random numbers from
+	//MathUtils.random, which the simulation doesn't use.
+	private ParticleEffect dustParticles;
+	
+	//text of the GUI, laid out again only when it changes
+	private HudLabel scoreLabel;
+	private HudLabel featherLabel;
+	private HudLabel fpsLabel;
+	private HudLabel drawnLabel;
+	private BitmapFontCache gameOverText;
+	private BitmapFontCache loadingText;
 	
 	public WorldRenderer(WorldController worldController)
 	{
@@ -42,27 +71,91 @@ public class WorldRenderer implements Disposable
 		cameraGUI.setToOrtho(true);
 		cameraGUI.update();
 		b2debugRenderer = new Box2DDebugRenderer();
+		dustParticles = new ParticleEffect();
+		dustParticles.load(Gdx.files.internal("assets-raw/particles/dust.pfx"), 
+				Gdx.files.internal("assets-raw/particles"));
+		//the dust plays through once and is not raised again
+		dustParticles.allowCompletion();
+		scoreLabel = new HudLabel(Assets.instance.fonts.defaultBig, "");
+		featherLabel = new HudLabel(Assets.instance.fonts.defaultSmall, "");
+		fpsLabel = new HudLabel(Assets.instance.fonts.defaultNormal, "FPS: ");
+		drawnLabel = new HudLabel(Assets.instance.fonts.defaultNormal, "Drawn: ");
+		gameOverText = new BitmapFontCache(Assets.instance.fonts.defaultBig);
+		gameOverText.setColor(1, 0.75f, 0.25f, 1);
+		loadingText = new BitmapFontCache(Assets.instance.fonts.defaultBig);
+	}
+	
+	/**
+	 * advances the effects that are drawn but not simulated
+	 * @param deltaTime
+	 */
+	public void update(float deltaTime)
+	{
+		if(QualityPreset.current().hasDust()) dustParticles.update(deltaTime);
 	}
 	
-	public void render()
+	/**
+	 * draws the game world and the GUI as a render state holds them
+	 * @param state
+	 */
+	public void render(RenderState state)
 	{
-		renderWorld();
-		renderGui(batch);
+		renderWorld(state);
+		renderGui(batch, state);
 	}
 	
-	private void renderWorld()
+	private void renderWorld(RenderState state)
 	{
-		worldController.cameraHelper.applyTo(camera);
+		//nothing to draw until the level has been built
+		if(state.loading) return;
+		//draw in between the last two ticks of the simulation
+		Vector2 cameraPosition = state.getCameraPosition();
+		camera.position.set(cameraPosition.x, cameraPosition.y, 0);
+		camera.zoom = state.cameraZoom;
+		camera.update();
+		//blocks of rocks outside of the visible area and its margin
+		//are skipped
+		float margin = Constants.RENDER_CULL_MARGIN;
+		float width = camera.viewportWidth * camera.zoom + 2 * margin;
+		float height = camera.viewportHeight * camera.zoom + 2 * margin;
+		visibleArea.set(cameraPosition.x - width / 2, cameraPosition.y - height / 2, width, height);
+		
+		boolean scaled = GamePreferences.instance.dynamicResolution;
+		if(scaled)
+		{
+			dynamicResolution.update(Gdx.graphics.getRawDeltaTime());
+			dynamicResolution.begin();
+		}
+		int rocks = state.getLayer(RenderState.LAYER_ROCKS);
+		int dust = state.getLayer(RenderState.LAYER_DUST);
 		batch.setProjectionMatrix(camera.combined);
 		batch.begin();
-		worldController.level.render(batch);
+		state.draw(batch, 0, rocks);
+		//the rock cache can't be drawn while the batch is
 		batch.end();
-		if(DEBUG_DRAW_BOX2D_WORLD)
+		drawnRocks = rockCache.render(state, camera.combined, visibleArea);
+		batch.begin();
+		state.draw(batch, rocks, dust);
+		if(QualityPreset.current().hasDust()) dustParticles.draw(batch);
+		state.draw(batch, dust, state.getSpriteCount());
+		batch.end();
+		if(scaled)
 		{
-			b2debugRenderer.render(worldController.b2world, camera.combined);
+			dynamicResolution.end(batch);
 		}
 	}
 	
+	/**
+	 * draws the bodies of the physics world over the frame when
+	 * DEBUG_DRAW_BOX2D_WORLD is set. Must be called while the world is
+	 * not being simulated.
+	 */
+	public void renderDebug()
+	{
+		if(!DEBUG_DRAW_BOX2D_WORLD || worldController.isLoading()) return;
+		b2debugRenderer.render(worldController.b2world, camera.combined);
+	}
+	
 	public void resize(int width, int height)
 	{
 		camera.viewportWidth = (Constants.VIEWPORT_HEIGHT / height) * width;
@@ -71,21 +164,29 @@ public class WorldRenderer implements Disposable
 		cameraGUI.viewportWidth = (Constants.VIEWPORT_GUI_HEIGHT / (float) height) * (float) width;
 		cameraGUI.position.set(cameraGUI.viewportWidth / 2, cameraGUI.viewportHeight / 2, 0);
 		cameraGUI.update();
+		//the messages are centered, so they only move with the size
+		float x = cameraGUI.viewportWidth / 2;
+		float y = cameraGUI.viewportHeight / 2;
+		gameOverText.setText("GAME OVER", x, y);
+		loadingText.setText("LOADING", x, y);
 	}
 	
 	@Override
 	public void dispose()
 	{
 		batch.dispose();
+		rockCache.dispose();
+		dustParticles.dispose();
+		dynamicResolution.dispose();
 	}
 	
-	private void renderGuiScore(SpriteBatch batch)
+	private void renderGuiScore(SpriteBatch batch, RenderState state)
 	{
 		float x = -15;
 		float y = -15;
 		float offsetX = 50;
 		float offsetY = 50;
-		if(worldController.scoreVisual < worldController.score)
+		if(state.scoreVisual < state.score)
 		{
 			long shakeAlpha = System.currentTimeMillis() % 360;
 			float shakeDist = 1.5f;
@@ -93,16 +194,16 @@ public class WorldRenderer implements Disposable
 			offsetY += MathUtils.sinDeg(shakeAlpha * 2.9f) * shakeDist;
 		}
 		batch.draw(Assets.instance.goldCoin.goldCoin, x, y, offsetX, offsetY, 100, 100, 0.35f, -0.35f, 0);
-		Assets.instance.fonts.defaultBig.draw(batch, "" + worldController.score, x + 75, y + 37);
+		scoreLabel.draw(batch, state.score, x + 75, y + 37);
 	}
 	
-	private void renderGuiExtraLive(SpriteBatch batch)
+	private void renderGuiExtraLive(SpriteBatch batch, RenderState state)
 	{
 		float x = cameraGUI.viewportWidth - 50 - Constants.LIVES_START * 50;
 		float y = -15;
 		for(int i = 0; i < Constants.LIVES_START; i++)
 		{
-			if(worldController.lives <= i)
+			if(state.lives <= i)
 			{
 				batch.setColor(0.5f, 0.5f, 0.5f, 0.5f);
 			}
@@ -110,11 +211,11 @@ public class WorldRenderer implements Disposable
 			batch.setColor(1, 1, 1, 1);
 		}
 		
-		if(worldController.lives >= 0 && worldController.livesVisual > worldController.lives)
+		if(state.lives >= 0 && state.livesVisual > state.lives)
 		{
-			int i = worldController.lives;
-			float alphaColor = Math.max(0,  worldController.livesVisual - worldController.lives - 0.5f);
-			float alphaScale = 0.35f * (2 + worldController.lives - worldController.livesVisual) * 2;
+			int i = state.lives;
+			float alphaColor = Math.max(0,  state.livesVisual - state.lives - 0.5f);
+			float alphaScale = 0.35f * (2 + state.lives - state.livesVisual) * 2;
 			float alphaRotate = -45 * alphaColor;
 			batch.setColor(1.0f, 0.7f, 0.7f, alphaColor);
 			batch.draw(Assets.instance.bunny.head, x + i * 50, y, 50, 50, 120, 100, alphaScale, -alphaScale, alphaRotate);
@@ -122,71 +223,81 @@ public class WorldRenderer implements Disposable
 		}
 	}
 	
-	private void renderGuiFpsCounter(SpriteBatch batch)
+	private void renderGuiFpsCounter(SpriteBatch batch, RenderState state)
 	{
 		float x = cameraGUI.viewportWidth - 55;
 		float y = cameraGUI.viewportHeight - 15;
 		int fps = Gdx.graphics.getFramesPerSecond();
-		BitmapFont fpsFont = Assets.instance.fonts.defaultNormal;
 		if(fps >= 45)
 		{
 			//45 or more FPS show up in green
-			fpsFont.setColor(0, 1, 0, 1);
+			fpsLabel.setColor(0, 1, 0, 1);
 		}
 		else if(fps >= 30)
 		{
 			//30 or more FPS show up in yellow
-			fpsFont.setColor(1, 1, 0, 1);
+			fpsLabel.setColor(1, 1, 0, 1);
 		}
 		else
 		{
 			//less than 30 FPS show up in red
-			fpsFont.setColor(1, 0, 0, 1);
+			fpsLabel.setColor(1, 0, 0, 1);
 		}
-		fpsFont.draw(batch, "FPS: " + fps, x, y);
-		fpsFont.setColor(1, 1, 1, 1);		//white
+		fpsLabel.draw(batch, fps, x, y);
+		
+		//objects drawn out of those in the resident chunks
+		if(state.loading) return;
+		int drawn = state.drawnCount + drawnRocks;
+		int total = state.drawnCount + state.culledCount + rockCache.getRockCount();
+		drawnLabel.draw(batch, drawn, total, x - 60, y - 20);
 	}
 	
-	private void renderGui(SpriteBatch batch)
+	private void renderGui(SpriteBatch batch, RenderState state)
 	{
 		batch.setProjectionMatrix(cameraGUI.combined);
 		batch.begin();
 		//draw collected gold coins icon + text
 		//(anchored to top left edge)
-		renderGuiScore(batch);
+		renderGuiScore(batch, state);
 		//draw collected feather icon (anchored to top left edge)
-		renderGuiFeatherPowerup(batch);
+		renderGuiFeatherPowerup(batch, state);
 		//draw extra lives icon + text (anchored to top right edge)
-		renderGuiExtraLive(batch);
+		renderGuiExtraLive(batch, state);
 		//draw FPS text (anchored to bottom right edge)
 		if(GamePreferences.instance.showFpsCounter)
 		{
-			renderGuiFpsCounter(batch);
+			renderGuiFpsCounter(batch, state);
 		}
 		//draw game over text
-		renderGuiGameOverMessage(batch);
+		renderGuiGameOverMessage(batch, state);
+		//draw loading text
+		renderGuiLoadingMessage(batch, state);
 		
 		batch.end();
 	}
 	
-	private void renderGuiGameOverMessage(SpriteBatch batch)
+	private void renderGuiGameOverMessage(SpriteBatch batch, RenderState state)
 	{
-		float x = cameraGUI.viewportWidth / 2;
-		float y = cameraGUI.viewportHeight / 2;
-		if(worldController.isGameOver())
+		if(state.gameOver)
+		{
+			gameOverText.draw(batch);
+		}
+	}
+	
+	private void renderGuiLoadingMessage(SpriteBatch batch, RenderState state)
+	{
+		if(state.loading)
 		{
-			BitmapFont fontGameOver = Assets.instance.fonts.defaultBig;
-			fontGameOver.setColor(1, 0.75f, 0.25f, 1);
-			fontGameOver.draw(batch, "GAME OVER", x, y);
-			fontGameOver.setColor(1, 1, 1, 1);
+			loadingText.draw(batch);
 		}
 	}
 	
-	private void renderGuiFeatherPowerup(SpriteBatch batch)
+	private void renderGuiFeatherPowerup(SpriteBatch batch, RenderState state)
 	{
+		if(state.loading) return;
 		float x = -15;
 		float y = 30;
-		float timeLeftFeatherPowerup = worldController.level.bunnyHead.timeLeftFeatherPowerup;
+		float timeLeftFeatherPowerup = state.timeLeftFeatherPowerup;
 		if(timeLeftFeatherPowerup > 0)
 		{
 			//Start icon fade in/out if the left power-up time
@@ -201,7 +312,7 @@ public class WorldRenderer implements Disposable
 			}
 			batch.draw(Assets.instance.feather.feather, x, y, 50, 50, 100, 100, 0.35f, -0.35f, 0);
 			batch.setColor(1, 1, 1, 1);
-			Assets.instance.fonts.defaultSmall.draw(batch, "" + (int)timeLeftFeatherPowerup, x + 60, y + 57);
+			featherLabel.draw(batch, (int)timeLeftFeatherPowerup, x + 60, y + 57);
 		}
 	}
 }
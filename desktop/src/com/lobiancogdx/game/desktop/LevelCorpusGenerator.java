@@ -0,0 +1,262 @@
+package com.lobiancogdx.game.desktop;
+/**
+ * The LevelCorpusGenerator class writes a corpus of large generated levels
+ * that are used to measure how loading, collision testing and rendering
+ * scale with the size of a level. Every level is written as a level image
+ * and as a compiled level file, so both loading paths can be measured.
+ * The same settings always produce the same files.
+ *
+ * Usage: LevelCorpusGenerator [key=value ...], for example
+ * widths=1000,1000000 rockDensity=0.5 coins=2000 out=corpus
+ * @author Jason LoBianco
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import world.Level.BLOCK_TYPE;
+import world.LevelData;
+import world.LevelDecoder;
+import world.LevelFile;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+public class LevelCorpusGenerator
+{
+	/**
+	 * The settings of a corpus. Counts of gold coins and feathers are per
+	 * 1000 columns, so every level of the corpus has the same mix.
+	 * @author Jason LoBianco
+	 */
+	public static class Settings
+	{
+		//widths of the levels in columns
+		public int[] widths = { 1000, 10000, 100000, 1000000 };
+		//height of the levels in rows
+		public int height = 32;
+		//fraction of the columns that are covered by rocks
+		public float rockDensity = 0.6f;
+		//rock run lengths: min + (max - min + 1) * random ^ runLengthSkew
+		//rounded down, 1 is uniform, larger values favour short runs
+		public int minRunLength = 2;
+		public int maxRunLength = 15;
+		public float runLengthSkew = 1.0f;
+		//items per 1000 columns
+		public int coins = 250;
+		public int feathers = 10;
+		public long seed = 493;
+		public String out = "corpus";
+	}
+
+	//rock heights measured from the bottom, as in the hand-drawn levels
+	private static final int MIN_ROCK_HEIGHT = 1;
+	private static final int MAX_ROCK_HEIGHT = 5;
+
+	//attempts at finding a free spot for an item before giving up
+	private static final int MAX_ITEM_ATTEMPTS = 16;
+
+	/**
+	 * parses the settings and writes the corpus
+	 * @param arg
+	 */
+	public static void main(String[] arg)
+	{
+		Settings settings = parse(arg);
+		GdxNativesLoader.load();
+		File dir = new File(settings.out);
+		if(!dir.isDirectory() && !dir.mkdirs())
+		{
+			throw new GdxRuntimeException("Couldn't create '" + dir + "'");
+		}
+		for(int width : settings.widths)
+		{
+			try
+			{
+				write(settings, width, dir);
+			}
+			catch(IOException e)
+			{
+				throw new GdxRuntimeException("Couldn't write level of width " + width, e);
+			}
+		}
+	}
+
+	/**
+	 * reads key=value arguments into the settings
+	 * @param arg
+	 * @return
+	 */
+	private static Settings parse(String[] arg)
+	{
+		Settings settings = new Settings();
+		for(String a : arg)
+		{
+			int split = a.indexOf('=');
+			if(split < 0) throw new IllegalArgumentException("Expected key=value: " + a);
+			String key = a.substring(0, split);
+			String value = a.substring(split + 1);
+			if(key.equals("widths"))
+			{
+				String[] widths = value.split(",");
+				settings.widths = new int[widths.length];
+				for(int i = 0; i < widths.length; i++)
+				{
+					settings.widths[i] = Integer.parseInt(widths[i].trim());
+				}
+			}
+			else if(key.equals("height")) settings.height = Integer.parseInt(value);
+			else if(key.equals("rockDensity")) settings.rockDensity = Float.parseFloat(value);
+			else if(key.equals("minRunLength")) settings.minRunLength = Integer.parseInt(value);
+			else if(key.equals("maxRunLength")) settings.maxRunLength = Integer.parseInt(value);
+			else if(key.equals("runLengthSkew")) settings.runLengthSkew = Float.parseFloat(value);
+			else if(key.equals("coins")) settings.coins = Integer.parseInt(value);
+			else if(key.equals("feathers")) settings.feathers = Integer.parseInt(value);
+			else if(key.equals("seed")) settings.seed = Long.parseLong(value);
+			else if(key.equals("out")) settings.out = value;
+			else throw new IllegalArgumentException("Unknown setting: " + key);
+		}
+		if(settings.rockDensity <= 0 || settings.rockDensity > 1)
+		{
+			throw new IllegalArgumentException("rockDensity must be in (0, 1]");
+		}
+		if(settings.minRunLength < 1 || settings.maxRunLength < settings.minRunLength)
+		{
+			throw new IllegalArgumentException("Expected 1 <= minRunLength <= maxRunLength");
+		}
+		if(settings.height < MAX_ROCK_HEIGHT + 8)
+		{
+			throw new IllegalArgumentException("height must be at least " + (MAX_ROCK_HEIGHT + 8));
+		}
+		return settings;
+	}
+
+	/**
+	 * generates one level and writes it as stress-[width].png and
+	 * stress-[width].lvl
+	 * @param settings
+	 * @param width
+	 * @param dir
+	 * @throws IOException
+	 */
+	private static void write(Settings settings, int width, File dir) throws IOException
+	{
+		long start = System.nanoTime();
+		Pixmap pixmap = generate(settings, width);
+		try
+		{
+			String name = "stress-" + width;
+			File png = new File(dir, name + ".png");
+			PixmapIO.writePNG(new FileHandle(png), pixmap);
+
+			//compile through the decoder, so the compiled level is
+			//exactly what the game would make of the image
+			LevelData data = LevelDecoder.decode(pixmap, width >= LevelDecoder.PARALLEL_MIN_WIDTH);
+			File lvl = new File(dir, name + LevelFile.EXTENSION);
+			LevelFile.write(data, lvl);
+
+			System.out.println(name + ": " + data.getRockCount() + " rock runs, "
+					+ data.getGoldCoinCount() + " gold coins, " + data.getFeatherCount() + " feathers, "
+					+ png.length() + " bytes png, " + lvl.length() + " bytes compiled, "
+					+ (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		finally
+		{
+			//free memory
+			pixmap.dispose();
+		}
+	}
+
+	/**
+	 * paints a level image of the given width
+	 * @param settings
+	 * @param width
+	 * @return
+	 */
+	private static Pixmap generate(Settings settings, int width)
+	{
+		//every width gets its own stream, so adding a width to the
+		//corpus does not change the other levels
+		RandomXS128 random = new RandomXS128(settings.seed * 31 + width);
+		int height = settings.height;
+		Pixmap pixmap = new Pixmap(width, height, Format.RGBA8888);
+		pixmap.setColor(BLOCK_TYPE.EMPTY.getColor());
+		pixmap.fill();
+
+		//rock runs, the first one starts under the spawn point. The last
+		//column stays empty so no run continues into the next row.
+		int rockHeight = 2;
+		int lastRunX = 0;
+		int lastRunY = height - rockHeight;
+		int x = 0;
+		pixmap.setColor(BLOCK_TYPE.ROCK.getColor());
+		while(true)
+		{
+			int length = nextRunLength(settings, random);
+			length = Math.min(length, width - 1 - x);
+			if(length <= 0) break;
+			int y = height - rockHeight;
+			pixmap.fillRectangle(x, y, length, 1);
+			lastRunX = x;
+			lastRunY = y;
+
+			//gap so that rocks cover rockDensity of the columns on average
+			float gap = length * (1 - settings.rockDensity) / settings.rockDensity;
+			x += length + Math.max(1, Math.round(gap * random.nextFloat() * 2));
+			rockHeight = MathUtils.clamp(rockHeight + random.nextInt(3) - 1, MIN_ROCK_HEIGHT, MAX_ROCK_HEIGHT);
+		}
+
+		//spawn point and goal
+		if(width > 0) pixmap.drawPixel(0, height - 3, BLOCK_TYPE.PLAYER_SPAWNPOINT.getColor());
+		if(lastRunX > 0) pixmap.drawPixel(lastRunX, lastRunY - 1, BLOCK_TYPE.GOAL.getColor());
+
+		//items float a few rows above the highest rocks
+		placeItems(pixmap, random, (int)((long)settings.coins * width / 1000), BLOCK_TYPE.ITEM_GOLD_COIN);
+		placeItems(pixmap, random, (int)((long)settings.feathers * width / 1000), BLOCK_TYPE.ITEM_FEATHER);
+		return pixmap;
+	}
+
+	/**
+	 * returns a random run length
+	 * @param settings
+	 * @param random
+	 * @return
+	 */
+	private static int nextRunLength(Settings settings, RandomXS128 random)
+	{
+		float r = (float)Math.pow(random.nextFloat(), settings.runLengthSkew);
+		return settings.minRunLength + (int)(r * (settings.maxRunLength - settings.minRunLength + 1));
+	}
+
+	/**
+	 * places items on free pixels above the rocks
+	 * @param pixmap
+	 * @param random
+	 * @param count
+	 * @param type
+	 */
+	private static void placeItems(Pixmap pixmap, RandomXS128 random, int count, BLOCK_TYPE type)
+	{
+		int width = pixmap.getWidth();
+		int height = pixmap.getHeight();
+		int empty = BLOCK_TYPE.EMPTY.getColor();
+		for(int i = 0; i < count; i++)
+		{
+			for(int attempt = 0; attempt < MAX_ITEM_ATTEMPTS; attempt++)
+			{
+				//skip the spawn column and keep the last column empty
+				int x = 1 + random.nextInt(Math.max(1, width - 2));
+				int y = height - MAX_ROCK_HEIGHT - 3 - random.nextInt(5);
+				if(x >= width - 1 || pixmap.getPixel(x, y) != empty) continue;
+				pixmap.drawPixel(x, y, type.getColor());
+				break;
+			}
+		}
+	}
+}